@@ -39,6 +39,8 @@ import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 import net.mohron.skyclaims.command.CommandIsland;
 import net.mohron.skyclaims.command.debug.CommandPlayerInfo;
+import net.mohron.skyclaims.command.debug.CommandRegionBenchmark;
+import net.mohron.skyclaims.command.debug.CommandStats;
 import net.mohron.skyclaims.command.debug.CommandVersion;
 import net.mohron.skyclaims.config.ConfigManager;
 import net.mohron.skyclaims.config.type.GlobalConfig;
@@ -54,9 +56,13 @@ import net.mohron.skyclaims.listener.RespawnHandler;
 import net.mohron.skyclaims.listener.SchematicHandler;
 import net.mohron.skyclaims.schematic.SchematicManager;
 import net.mohron.skyclaims.team.InviteService;
-import net.mohron.skyclaims.world.Island;
+import net.mohron.skyclaims.world.ClaimReconciliationJob;
 import net.mohron.skyclaims.world.IslandCleanupTask;
+import net.mohron.skyclaims.world.IslandCreationQueue;
 import net.mohron.skyclaims.world.IslandManager;
+import net.mohron.skyclaims.world.IslandPool;
+import net.mohron.skyclaims.world.OperationJournal;
+import net.mohron.skyclaims.world.RegenerationQueue;
 import net.mohron.skyclaims.world.gen.VoidWorldGeneratorModifier;
 import net.mohron.skyclaims.world.region.Region;
 import ninja.leaping.configurate.commented.CommentedConfigurationNode;
@@ -291,13 +297,12 @@ public class SkyClaims {
 
     database = initializeDatabase();
     schematicManager.load();
+    schematicManager.startWatching();
 
-    IslandManager.ISLANDS = database.loadData();
+    IslandManager.load(database.loadData());
     logger.info("{} islands loaded.", IslandManager.ISLANDS.size());
-    if (!IslandManager.saveQueue.isEmpty()) {
-      logger.info("Saving {} claims that were malformed.", IslandManager.saveQueue.size());
-      database.saveData(IslandManager.saveQueue);
-    }
+    OperationJournal.getInstance().load();
+    OperationJournal.getInstance().recover();
 
     // SkyClaims Metrics are enabled by default
     if (this.metricsConfigManager.getCollectionState(this.pluginContainer) == Tristate.UNDEFINED) {
@@ -314,6 +319,11 @@ public class SkyClaims {
       return;
     }
     logger.info("{} {} is stopping...", NAME, VERSION);
+    schematicManager.close();
+    if (database != null) {
+      database.close();
+    }
+    OperationJournal.getInstance().close();
   }
 
   @Listener
@@ -326,20 +336,41 @@ public class SkyClaims {
     Sponge.getEventManager().unregisterPluginListeners(this);
     // Cancel Tasks
     Sponge.getScheduler().getTasksByName(ISLAND_CLEANUP).forEach(Task::cancel);
+    Sponge.getScheduler().getTasksByName(RegenerationQueue.TASK_NAME).forEach(Task::cancel);
+    Sponge.getScheduler().getTasksByName(IslandPool.TASK_NAME).forEach(Task::cancel);
+    Sponge.getScheduler().getTasksByName(IslandCreationQueue.TASK_NAME).forEach(Task::cancel);
+    Sponge.getScheduler().getTasksByName(ClaimReconciliationJob.TASK_NAME).forEach(Task::cancel);
+    schematicManager.stopWatching();
     // Remove Commands
     Sponge.getCommandManager().getOwnedBy(this).forEach(Sponge.getCommandManager()::removeMapping);
     CommandIsland.clearSubCommands();
   }
 
-  public void reload() {
+  /**
+   * Reloads the config, schematics and islands.
+   *
+   * @return false if the reload was refused because islands are being created
+   */
+  public boolean reload() {
     if (enabled) {
+      // Reloading the islands would drop those still being created
+      int creating = IslandCreationQueue.getInstance().getInProgress();
+      if (creating > 0) {
+        logger.warn("Unable to reload while {} islands are being created, please try again shortly.", creating);
+        return false;
+      }
       unload();
       // Load Plugin Config
       configManager.load();
       // Load Schematics
       schematicManager.load();
-      // Load Database
-      IslandManager.ISLANDS = database.loadData();
+      schematicManager.startWatching();
+      // Load Database, once every queued change has been written so none are lost
+      if (database.getWriteQueue().drain()) {
+        IslandManager.load(database.loadData());
+      } else {
+        logger.error("Unable to write pending island changes to the database, keeping the loaded islands.");
+      }
       // Reload Listeners
       registerListeners();
       // Reload Tasks
@@ -347,6 +378,7 @@ public class SkyClaims {
       // Reload Commands
       registerCommands();
     }
+    return true;
   }
 
   private void registerListeners() {
@@ -360,6 +392,10 @@ public class SkyClaims {
   }
 
   private void registerTasks() {
+    RegenerationQueue.register();
+    IslandPool.register();
+    IslandCreationQueue.register();
+    ClaimReconciliationJob.register();
     if (getConfig().getExpirationConfig().isEnabled()) {
       Sponge.getScheduler().createTaskBuilder()
           .name(ISLAND_CLEANUP)
@@ -373,6 +409,8 @@ public class SkyClaims {
   private void registerDebugCommands() {
     CommandVersion.register();
     CommandPlayerInfo.register();
+    CommandRegionBenchmark.register();
+    CommandStats.register();
   }
 
   private void registerCommands() {
@@ -452,8 +490,4 @@ public class SkyClaims {
   public Optional<IslandManager> getIslandManager(WorldProperties world) {
     return Optional.ofNullable(islandManagers.get(world.getUniqueId()));
   }
-
-  public void queueForSaving(Island island) {
-    IslandManager.saveQueue.add(island);
-  }
 }
@@ -29,7 +29,9 @@ public final class SkyClaimsTimings {
   // TASKS
   public static final Timing GENERATE_ISLAND = Timings.of(SkyClaims.getInstance().getPluginContainer(), "onGenerateIsland");
   public static final Timing CLEAR_ISLAND = Timings.of(SkyClaims.getInstance().getPluginContainer(), "onClearIsland");
+  public static final Timing REGEN_QUEUE = Timings.of(SkyClaims.getInstance().getPluginContainer(), "onRegenQueue");
   public static final Timing ISLAND_CLEANUP = Timings.of(SkyClaims.getInstance().getPluginContainer(), "onIslandCleanupTask");
+  public static final Timing CLAIM_RECONCILIATION = Timings.of(SkyClaims.getInstance().getPluginContainer(), "onClaimReconciliation");
 
   // LISTENERS
   public static final Timing CLIENT_JOIN = Timings.of(SkyClaims.getInstance().getPluginContainer(), "onClientJoin");
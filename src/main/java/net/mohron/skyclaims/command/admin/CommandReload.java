@@ -51,7 +51,9 @@ public class CommandReload extends CommandBase {
 
   @Override
   public CommandResult execute(CommandSource src, CommandContext args) throws CommandException {
-    PLUGIN.reload();
+    if (!PLUGIN.reload()) {
+      throw new CommandException(Text.of(TextColors.RED, "Islands are being created, please try again shortly."));
+    }
     src.sendMessage(Text.of(TextColors.GREEN, "Successfully reloaded SkyClaims!"));
     return CommandResult.success();
   }
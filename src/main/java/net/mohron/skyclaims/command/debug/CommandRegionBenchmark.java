@@ -0,0 +1,158 @@
+/*
+ * SkyClaims - A Skyblock plugin made for Sponge
+ * Copyright (C) 2017 Mohron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SkyClaims is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SkyClaims.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.mohron.skyclaims.command.debug;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import net.mohron.skyclaims.command.CommandBase;
+import net.mohron.skyclaims.command.argument.PositiveIntegerArgument;
+import net.mohron.skyclaims.exception.InvalidRegionException;
+import net.mohron.skyclaims.permissions.Permissions;
+import net.mohron.skyclaims.world.region.BitmapRegionPattern;
+import net.mohron.skyclaims.world.region.Region;
+import net.mohron.skyclaims.world.region.RegionOccupancy;
+import net.mohron.skyclaims.world.region.RegionPatternType;
+import org.spongepowered.api.Sponge;
+import org.spongepowered.api.command.CommandException;
+import org.spongepowered.api.command.CommandResult;
+import org.spongepowered.api.command.CommandSource;
+import org.spongepowered.api.command.args.CommandContext;
+import org.spongepowered.api.command.args.GenericArguments;
+import org.spongepowered.api.command.spec.CommandSpec;
+import org.spongepowered.api.text.Text;
+import org.spongepowered.api.text.format.TextColors;
+
+public class CommandRegionBenchmark extends CommandBase {
+
+  public static final String HELP_TEXT = "compare region patterns by allocating simulated islands.";
+  private static final Text ISLANDS = Text.of("islands");
+  private static final int DEFAULT_ISLANDS = 100_000;
+  // The number of consecutively created islands used to measure region file clustering
+  private static final int WINDOW = 64;
+
+  public static void register() {
+    CommandSpec commandSpec = CommandSpec.builder()
+        .permission(Permissions.COMMAND_REGION_BENCHMARK)
+        .description(Text.of(HELP_TEXT))
+        .arguments(GenericArguments.optional(new PositiveIntegerArgument(ISLANDS)))
+        .executor(new CommandRegionBenchmark())
+        .build();
+
+    try {
+      PLUGIN.getGame().getCommandManager().register(PLUGIN, commandSpec, "scregionbenchmark");
+      PLUGIN.getLogger().debug("Registered command: CommandRegionBenchmark");
+    } catch (UnsupportedOperationException e) {
+      PLUGIN.getLogger().error("Failed to register command: CommandRegionBenchmark", e);
+    }
+  }
+
+  @Override
+  public CommandResult execute(CommandSource src, CommandContext args) throws CommandException {
+    int islands = args.<Integer>getOne(ISLANDS).orElse(DEFAULT_ISLANDS);
+    int spawnRegions = PLUGIN.getConfig().getWorldConfig().getSpawnRegions();
+
+    src.sendMessage(Text.of(TextColors.GRAY, "Allocating ", TextColors.LIGHT_PURPLE, islands, TextColors.GRAY, " simulated islands per pattern..."));
+
+    Sponge.getScheduler().createTaskBuilder()
+        .async()
+        .execute(() -> {
+          List<Text> results = Lists.newArrayList();
+          for (RegionPatternType type : RegionPatternType.values()) {
+            results.add(benchmark(type, islands, spawnRegions));
+          }
+          Sponge.getScheduler().createTaskBuilder()
+              .execute(() -> results.forEach(src::sendMessage))
+              .submit(PLUGIN);
+        })
+        .submit(PLUGIN);
+
+    return CommandResult.success();
+  }
+
+  private static Text benchmark(RegionPatternType type, int islands, int spawnRegions) {
+    BitmapRegionPattern pattern = type.create(PLUGIN.getConfig().getWorldConfig().getRegionPatternSeed());
+    RegionOccupancy occupancy = new RegionOccupancy();
+    Region[] window = new Region[WINDOW];
+    long steps = 0;
+    long windowArea = 0;
+    int windows = 0;
+    int minX = 0;
+    int maxX = 0;
+    int minZ = 0;
+    int maxZ = 0;
+
+    Stopwatch sw = Stopwatch.createStarted();
+    for (int i = 0; i < islands; i++) {
+      Region region;
+      try {
+        region = pattern.nextRegion(occupancy, spawnRegions);
+      } catch (InvalidRegionException e) {
+        return Text.of(TextColors.DARK_AQUA, type, TextColors.WHITE, " : ", TextColors.RED, "ran out of regions after ", i, " islands");
+      }
+      occupancy.occupy(region);
+
+      // Region files between consecutively created islands
+      Region previous = window[(i + WINDOW - 1) % WINDOW];
+      if (previous != null) {
+        steps += Math.max(Math.abs(region.getX() - previous.getX()), Math.abs(region.getZ() - previous.getZ()));
+      }
+      window[i % WINDOW] = region;
+      // Region files spanned by each full window of recently created islands
+      if (i % WINDOW == WINDOW - 1) {
+        windowArea += getArea(window);
+        windows++;
+      }
+      minX = Math.min(minX, region.getX());
+      maxX = Math.max(maxX, region.getX());
+      minZ = Math.min(minZ, region.getZ());
+      maxZ = Math.max(maxZ, region.getZ());
+    }
+    sw.stop();
+
+    double meanStep = steps / (double) Math.max(1, islands - 1);
+    double meanSpan = windowArea / (double) Math.max(1, windows) / WINDOW;
+    PLUGIN.getLogger().info(
+        "Region benchmark {}: {} islands in {}ms, mean step {}, mean window span {}, total span {}",
+        type, islands, sw.elapsed(TimeUnit.MILLISECONDS), String.format("%.2f", meanStep), String.format("%.2f", meanSpan),
+        (long) (maxX - minX + 1) * (maxZ - minZ + 1)
+    );
+    return Text.of(
+        TextColors.DARK_AQUA, type, TextColors.WHITE, " : ",
+        TextColors.YELLOW, sw.elapsed(TimeUnit.NANOSECONDS) / islands, "ns", TextColors.GRAY, " per island, ",
+        TextColors.YELLOW, String.format("%.2f", meanStep), TextColors.GRAY, " files between islands, ",
+        TextColors.YELLOW, String.format("%.2f", meanSpan), TextColors.GRAY, " files spanned per recent island"
+    );
+  }
+
+  private static long getArea(Region[] regions) {
+    int minX = Integer.MAX_VALUE;
+    int maxX = Integer.MIN_VALUE;
+    int minZ = Integer.MAX_VALUE;
+    int maxZ = Integer.MIN_VALUE;
+    for (Region region : regions) {
+      minX = Math.min(minX, region.getX());
+      maxX = Math.max(maxX, region.getX());
+      minZ = Math.min(minZ, region.getZ());
+      maxZ = Math.max(maxZ, region.getZ());
+    }
+    return (long) (maxX - minX + 1) * (maxZ - minZ + 1);
+  }
+}
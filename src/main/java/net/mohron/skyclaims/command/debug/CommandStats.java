@@ -0,0 +1,130 @@
+/*
+ * SkyClaims - A Skyblock plugin made for Sponge
+ * Copyright (C) 2017 Mohron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SkyClaims is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SkyClaims.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.mohron.skyclaims.command.debug;
+
+import com.google.common.collect.Lists;
+import java.util.List;
+import net.mohron.skyclaims.command.CommandBase;
+import net.mohron.skyclaims.database.IslandWriteQueue;
+import net.mohron.skyclaims.permissions.Permissions;
+import net.mohron.skyclaims.world.ClaimReconciliationJob;
+import net.mohron.skyclaims.world.IslandCreationPipeline;
+import net.mohron.skyclaims.world.IslandCreationQueue;
+import net.mohron.skyclaims.world.IslandPool;
+import net.mohron.skyclaims.world.RegenerationQueue;
+import org.spongepowered.api.command.CommandException;
+import org.spongepowered.api.command.CommandResult;
+import org.spongepowered.api.command.CommandSource;
+import org.spongepowered.api.command.args.CommandContext;
+import org.spongepowered.api.command.spec.CommandSpec;
+import org.spongepowered.api.text.Text;
+import org.spongepowered.api.text.format.TextColors;
+
+public class CommandStats extends CommandBase {
+
+  public static final String HELP_TEXT = "used to view the state of SkyClaims' background work.";
+
+  public static void register() {
+    CommandSpec commandSpec = CommandSpec.builder()
+        .permission(Permissions.COMMAND_STATS)
+        .description(Text.of(HELP_TEXT))
+        .executor(new CommandStats())
+        .build();
+
+    try {
+      PLUGIN.getGame().getCommandManager().register(PLUGIN, commandSpec, "scstats");
+      PLUGIN.getLogger().debug("Registered command: CommandStats");
+    } catch (UnsupportedOperationException e) {
+      PLUGIN.getLogger().error("Failed to register command: CommandStats", e);
+    }
+  }
+
+  @Override
+  public CommandResult execute(CommandSource src, CommandContext args) throws CommandException {
+    List<Text> texts = Lists.newArrayList();
+
+    // Region Regeneration
+    RegenerationQueue regen = RegenerationQueue.getInstance();
+    texts.add(Text.of(
+        TextColors.DARK_AQUA, "Regen Queue", TextColors.WHITE, " : ",
+        TextColors.YELLOW, regen.getDepth(), TextColors.GRAY, " chunks queued, ",
+        TextColors.YELLOW, String.format("%.1f", regen.getThroughput()), TextColors.GRAY, " chunks/s, ",
+        TextColors.YELLOW, regen.getTotalCompleted(), TextColors.GRAY, " regenerated",
+        regen.isThrottled() ? Text.of(TextColors.RED, " (throttled by TPS)") : Text.EMPTY
+    ));
+
+    // Island Pool
+    IslandPool pool = IslandPool.getInstance();
+    texts.add(Text.of(
+        TextColors.DARK_AQUA, "Island Pool", TextColors.WHITE, " : ",
+        TextColors.YELLOW, pool.getSize(), TextColors.GRAY, "/", TextColors.YELLOW, PLUGIN.getConfig().getWorldConfig().getIslandPoolSize(),
+        TextColors.GRAY, " regions ready, ",
+        TextColors.YELLOW, String.format("%.0f%%", pool.getHitRate() * 100), TextColors.GRAY, " hit rate (",
+        TextColors.YELLOW, pool.getHits(), TextColors.GRAY, " hits, ", TextColors.YELLOW, pool.getMisses(), TextColors.GRAY, " misses)"
+    ));
+
+    // Island Creation
+    IslandCreationQueue creation = IslandCreationQueue.getInstance();
+    texts.add(Text.of(
+        TextColors.DARK_AQUA, "Creation Queue", TextColors.WHITE, " : ",
+        TextColors.YELLOW, creation.getDepth(), TextColors.GRAY, " waiting, ",
+        TextColors.YELLOW, creation.getInProgress(), TextColors.GRAY, " in progress, wait ",
+        TextColors.YELLOW, creation.getWaitTime()
+    ));
+    texts.add(Text.of(
+        TextColors.DARK_AQUA, "Island Creation", TextColors.WHITE, " : ",
+        TextColors.YELLOW, IslandCreationPipeline.getTotalTiming()
+    ));
+    IslandCreationPipeline.getTimings().forEach((stage, timing) -> texts.add(Text.of(
+        TextColors.GRAY, " - ", TextColors.DARK_AQUA, stage, TextColors.WHITE, " : ", TextColors.YELLOW, timing
+    )));
+
+    // Database
+    IslandWriteQueue writes = PLUGIN.getDatabase().getWriteQueue();
+    texts.add(Text.of(
+        TextColors.DARK_AQUA, "Database Writes", TextColors.WHITE, " : ",
+        TextColors.YELLOW, writes.getDepth(), TextColors.GRAY, " islands pending, ",
+        TextColors.YELLOW, writes.getWritten(), TextColors.GRAY, " written, flush ",
+        TextColors.YELLOW, writes.getFlushLatency()
+    ));
+
+    // Claims
+    ClaimReconciliationJob reconciliation = ClaimReconciliationJob.getInstance();
+    ClaimReconciliationJob.Report current = reconciliation.getCurrentReport();
+    ClaimReconciliationJob.Report last = reconciliation.getLastReport();
+    if (current != null) {
+      texts.add(Text.of(
+          TextColors.DARK_AQUA, "Claim Reconciliation", TextColors.WHITE, " : ",
+          TextColors.YELLOW, current.getChecked(), TextColors.GRAY, " of ",
+          TextColors.YELLOW, current.getTotal(), TextColors.GRAY, " islands checked"
+      ));
+    } else if (last != null) {
+      texts.add(Text.of(
+          TextColors.DARK_AQUA, "Claim Reconciliation", TextColors.WHITE, " : ",
+          TextColors.YELLOW, last.getRepaired().size(), TextColors.GRAY, " repaired, ",
+          TextColors.YELLOW, last.getOrphaned().size(), TextColors.GRAY, " orphaned, ",
+          TextColors.YELLOW, last.getConflicting().size(), TextColors.GRAY, " conflicting in ",
+          TextColors.YELLOW, last.getElapsedMillis(), TextColors.GRAY, "ms"
+      ));
+    }
+
+    texts.forEach(src::sendMessage);
+    return CommandResult.success();
+  }
+}
@@ -83,11 +83,13 @@ public class CommandSchematicCommand extends CommandBase {
       schematic.setCommands(commands);
     }
 
-    if (PLUGIN.getSchematicManager().save(schematic)) {
-      src.sendMessage(Text.of(TextColors.GREEN, "Successfully updated schematic."));
-      return CommandResult.success();
-    } else {
-      throw new CommandException(Text.of(TextColors.RED, "Failed to update schematic."));
-    }
+    PLUGIN.getSchematicManager().save(schematic).thenAccept(saved -> {
+      if (saved) {
+        src.sendMessage(Text.of(TextColors.GREEN, "Successfully updated schematic."));
+      } else {
+        src.sendMessage(Text.of(TextColors.RED, "Failed to update schematic."));
+      }
+    });
+    return CommandResult.success();
   }
 }
@@ -78,17 +78,21 @@ public class CommandSchematicCreate extends CommandBase.PlayerCommand {
         .paletteType(BlockPaletteTypes.LOCAL)
         .build();
 
-    if (PLUGIN.getSchematicManager().create(schematic, name)) {
-      player.sendMessage(Text.of(TextColors.GREEN, "Successfully created ", TextColors.WHITE, name, TextColors.GREEN, "."));
-      if (PLUGIN.getConfig().getPermissionConfig().isSeparateSchematicPerms()){
-        player.sendMessage(Text.of(
-            TextColors.GREEN, "Use ", TextColors.GRAY, Permissions.COMMAND_ARGUMENTS_SCHEMATICS, ".", name,
-            TextColors.GREEN, " to give permission to use."
-        ));
+    // The volume has been copied from the world, so the schematic can be serialized off the main thread
+    player.sendMessage(Text.of(TextColors.GRAY, "Saving ", TextColors.WHITE, name, TextColors.GRAY, "..."));
+    PLUGIN.getSchematicManager().create(schematic, name).thenAccept(created -> {
+      if (created) {
+        player.sendMessage(Text.of(TextColors.GREEN, "Successfully created ", TextColors.WHITE, name, TextColors.GREEN, "."));
+        if (PLUGIN.getConfig().getPermissionConfig().isSeparateSchematicPerms()){
+          player.sendMessage(Text.of(
+              TextColors.GREEN, "Use ", TextColors.GRAY, Permissions.COMMAND_ARGUMENTS_SCHEMATICS, ".", name,
+              TextColors.GREEN, " to give permission to use."
+          ));
+        }
+      } else {
+        player.sendMessage(Text.of(TextColors.RED, "Error saving schematic!"));
       }
-      return CommandResult.success();
-    } else {
-      throw new CommandException(Text.of(TextColors.RED, "Error saving schematic!"));
-    }
+    });
+    return CommandResult.success();
   }
 }
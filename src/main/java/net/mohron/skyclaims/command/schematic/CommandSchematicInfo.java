@@ -147,11 +147,13 @@ public class CommandSchematicInfo extends CommandBase {
               List<String> commands = schematic.getCommands();
               commands.remove(command);
               schematic.setCommands(commands);
-              if (PLUGIN.getSchematicManager().save(schematic)) {
-                src.sendMessage(Text.of(TextColors.GREEN, "Successfully removed ", TextColors.WHITE, command, TextColors.GREEN, "."));
-              } else {
-                src.sendMessage(Text.of(TextColors.RED, "Failed to remove ", TextColors.WHITE, command, TextColors.RED, "."));
-              }
+              PLUGIN.getSchematicManager().save(schematic).thenAccept(saved -> {
+                if (saved) {
+                  src.sendMessage(Text.of(TextColors.GREEN, "Successfully removed ", TextColors.WHITE, command, TextColors.GREEN, "."));
+                } else {
+                  src.sendMessage(Text.of(TextColors.RED, "Failed to remove ", TextColors.WHITE, command, TextColors.RED, "."));
+                }
+              });
             })),
         TextColors.WHITE, "] ");
   }
@@ -65,14 +65,16 @@ public class CommandSchematicSetBiome extends CommandBase {
 
     schematic.setBiomeType(biome);
 
-    if (PLUGIN.getSchematicManager().save(schematic)) {
-      src.sendMessage(Text.of(
-          TextColors.GREEN, "Successfully updated schematic biome to ",
-          TextColors.WHITE, biome != null ? biome.getName() : "none", TextColors.GREEN, "."
-      ));
-      return CommandResult.success();
-    } else {
-      throw new CommandException(Text.of(TextColors.RED, "Failed to update schematic."));
-    }
+    PLUGIN.getSchematicManager().save(schematic).thenAccept(saved -> {
+      if (saved) {
+        src.sendMessage(Text.of(
+            TextColors.GREEN, "Successfully updated schematic biome to ",
+            TextColors.WHITE, biome != null ? biome.getName() : "none", TextColors.GREEN, "."
+        ));
+      } else {
+        src.sendMessage(Text.of(TextColors.RED, "Failed to update schematic."));
+      }
+    });
+    return CommandResult.success();
   }
 }
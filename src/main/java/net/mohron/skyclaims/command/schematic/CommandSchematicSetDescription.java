@@ -68,14 +68,16 @@ public class CommandSchematicSetDescription extends CommandBase {
       schematic.setDescription(null);
     }
 
-    if (PLUGIN.getSchematicManager().save(schematic)) {
-      src.sendMessage(Text.of(
-          TextColors.GREEN, "Successfully updated schematic description to", TextColors.WHITE, ":", Text.NEW_LINE,
-          TextColors.RESET, schematic.getDescriptionText()
-      ));
-      return CommandResult.success();
-    } else {
-      throw new CommandException(Text.of(TextColors.RED, "Failed to update schematic."));
-    }
+    PLUGIN.getSchematicManager().save(schematic).thenAccept(saved -> {
+      if (saved) {
+        src.sendMessage(Text.of(
+            TextColors.GREEN, "Successfully updated schematic description to", TextColors.WHITE, ":", Text.NEW_LINE,
+            TextColors.RESET, schematic.getDescriptionText()
+        ));
+      } else {
+        src.sendMessage(Text.of(TextColors.RED, "Failed to update schematic."));
+      }
+    });
+    return CommandResult.success();
   }
 }
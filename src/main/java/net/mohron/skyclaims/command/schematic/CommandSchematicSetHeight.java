@@ -67,11 +67,13 @@ public class CommandSchematicSetHeight extends CommandBase {
 
     schematic.setHeight(height);
 
-    if (PLUGIN.getSchematicManager().save(schematic)) {
-      src.sendMessage(Text.of(TextColors.GREEN, "Successfully updated schematic height to ", TextColors.LIGHT_PURPLE, height, TextColors.GREEN, "."));
-      return CommandResult.success();
-    } else {
-      throw new CommandException(Text.of(TextColors.RED, "Failed to update schematic."));
-    }
+    PLUGIN.getSchematicManager().save(schematic).thenAccept(saved -> {
+      if (saved) {
+        src.sendMessage(Text.of(TextColors.GREEN, "Successfully updated schematic height to ", TextColors.LIGHT_PURPLE, height, TextColors.GREEN, "."));
+      } else {
+        src.sendMessage(Text.of(TextColors.RED, "Failed to update schematic."));
+      }
+    });
+    return CommandResult.success();
   }
 }
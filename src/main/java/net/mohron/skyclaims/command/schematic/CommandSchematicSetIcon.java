@@ -89,10 +89,11 @@ public class CommandSchematicSetIcon extends CommandBase {
       src.sendMessage(Text.of(TextColors.GREEN, "Successfully removed schematic icon."));
     }
 
-    if (PLUGIN.getSchematicManager().save(schematic)) {
-      return CommandResult.success();
-    } else {
-      throw new CommandException(Text.of(TextColors.RED, "Failed to update schematic."));
-    }
+    PLUGIN.getSchematicManager().save(schematic).thenAccept(saved -> {
+      if (!saved) {
+        src.sendMessage(Text.of(TextColors.RED, "Failed to update schematic."));
+      }
+    });
+    return CommandResult.success();
   }
 }
@@ -64,18 +64,20 @@ public class CommandSchematicSetPreset extends CommandBase {
 
     schematic.setPreset(preset);
 
-    if (PLUGIN.getSchematicManager().save(schematic)) {
-      if (preset != null) {
-        src.sendMessage(Text.of(
-            TextColors.GREEN, "Successfully updated schematic preset to ",
-            TextColors.WHITE, preset, TextColors.GREEN, "."
-        ));
+    PLUGIN.getSchematicManager().save(schematic).thenAccept(saved -> {
+      if (saved) {
+        if (preset != null) {
+          src.sendMessage(Text.of(
+              TextColors.GREEN, "Successfully updated schematic preset to ",
+              TextColors.WHITE, preset, TextColors.GREEN, "."
+          ));
+        } else {
+          src.sendMessage(Text.of(TextColors.GREEN, "Successfully removed schematic preset."));
+        }
       } else {
-        src.sendMessage(Text.of(TextColors.GREEN, "Successfully removed schematic preset."));
+        src.sendMessage(Text.of(TextColors.RED, "Failed to update schematic."));
       }
-      return CommandResult.success();
-    } else {
-      throw new CommandException(Text.of(TextColors.RED, "Failed to update schematic."));
-    }
+    });
+    return CommandResult.success();
   }
 }
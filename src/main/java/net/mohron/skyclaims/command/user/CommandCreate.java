@@ -19,6 +19,7 @@
 package net.mohron.skyclaims.command.user;
 
 import java.util.Optional;
+import java.util.concurrent.CompletionException;
 import java.util.function.Consumer;
 import net.mohron.skyclaims.command.CommandBase.ListSchematicCommand;
 import net.mohron.skyclaims.command.CommandIsland;
@@ -27,8 +28,9 @@ import net.mohron.skyclaims.exception.CreateIslandException;
 import net.mohron.skyclaims.permissions.Options;
 import net.mohron.skyclaims.permissions.Permissions;
 import net.mohron.skyclaims.schematic.IslandSchematic;
-import net.mohron.skyclaims.world.Island;
+import net.mohron.skyclaims.world.IslandCreationQueue;
 import net.mohron.skyclaims.world.IslandManager;
+import org.spongepowered.api.Sponge;
 import org.spongepowered.api.command.CommandException;
 import org.spongepowered.api.command.CommandResult;
 import org.spongepowered.api.command.CommandSource;
@@ -88,13 +90,8 @@ public class CommandCreate extends ListSchematicCommand {
         PLUGIN.getConfig().getMiscConfig().isTeleportOnCreate() ? " You will be teleported shortly." : Text.EMPTY
     ));
 
-    try {
-      Island island = new Island(player, schematic);
-      clearIslandMemberInventories(island, Permissions.KEEP_INV_PLAYER_CREATE, Permissions.KEEP_INV_ENDERCHEST_CREATE);
-      return CommandResult.success();
-    } catch (CreateIslandException e) {
-      throw new CommandException(Text.of(TextColors.RED, "Unable to create island!", Text.NEW_LINE, TextColors.RESET, e.getText()));
-    }
+    beginCreation(player, schematic);
+    return CommandResult.success();
   }
 
   private boolean hasPlayerReachedMaxIslands(Player player) {
@@ -115,13 +112,22 @@ public class CommandCreate extends ListSchematicCommand {
             PLUGIN.getConfig().getMiscConfig().isTeleportOnCreate() ? " You will be teleported shortly." : Text.EMPTY
         ));
 
-        try {
-          Island island = new Island(player, schematic);
-          clearIslandMemberInventories(island, Permissions.KEEP_INV_PLAYER_CREATE, Permissions.KEEP_INV_ENDERCHEST_CREATE);
-        } catch (CreateIslandException e) {
-          player.sendMessage(Text.of(TextColors.RED, "Unable to create island!", Text.NEW_LINE, TextColors.RESET, e.getText()));
-        }
+        beginCreation(player, schematic);
       }
     };
   }
+
+  private void beginCreation(Player player, IslandSchematic schematic) {
+    IslandCreationQueue.getInstance().submit(player, schematic).whenCompleteAsync((island, throwable) -> {
+      if (throwable == null) {
+        clearIslandMemberInventories(island, Permissions.KEEP_INV_PLAYER_CREATE, Permissions.KEEP_INV_ENDERCHEST_CREATE);
+      } else {
+        Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+        player.sendMessage(Text.of(
+            TextColors.RED, "Unable to create island!",
+            cause instanceof CreateIslandException ? Text.of(Text.NEW_LINE, TextColors.RESET, ((CreateIslandException) cause).getText()) : Text.EMPTY
+        ));
+      }
+    }, Sponge.getScheduler().createSyncExecutor(PLUGIN));
+  }
 }
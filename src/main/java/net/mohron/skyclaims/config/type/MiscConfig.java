@@ -37,6 +37,13 @@ public class MiscConfig {
   @Setting(value = "Island-on-Join", comment = "Automatically create an island for a player on join.\n" +
       "Requires a valid default schematic to be set (skyclaims.default-schematic)")
   private boolean islandOnJoin = false;
+  @Setting(value = "Creation-Concurrency", comment = "The number of islands that may be created at the same time. Others wait in a queue. Default: 2")
+  private int creationConcurrency = 2;
+  @Setting(value = "Creation-Queue-Size", comment = "The number of players that may wait for an island to be created. Default: 100")
+  private int creationQueueSize = 100;
+  @Setting(value = "Claim-Reconciliation-Interval", comment = "Minutes between checks of every island's claim, which repair missing or\n" +
+      "undersized claims and report orphaned and conflicting ones. The first check runs shortly after startup. Default: 360")
+  private int claimReconciliationInterval = 360;
   @Setting(value = "Teleport-on-Creation", comment = "Automatically teleport the owner to their island on creation.")
   private boolean teleportOnCreate = true;
   @Setting(value = "Text-Schematic-List", comment = "Enable to use a text based schematic list instead of a chest UI.")
@@ -61,6 +68,18 @@ public class MiscConfig {
     return islandOnJoin;
   }
 
+  public int getCreationConcurrency() {
+    return Math.max(1, creationConcurrency);
+  }
+
+  public int getCreationQueueSize() {
+    return Math.max(1, creationQueueSize);
+  }
+
+  public int getClaimReconciliationInterval() {
+    return Math.max(1, claimReconciliationInterval);
+  }
+
   public boolean isTeleportOnCreate() {
     return teleportOnCreate;
   }
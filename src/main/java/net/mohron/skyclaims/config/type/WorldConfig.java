@@ -22,6 +22,7 @@ import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.UUID;
 import net.mohron.skyclaims.SkyClaims;
+import net.mohron.skyclaims.world.region.RegionPatternType;
 import ninja.leaping.configurate.objectmapping.Setting;
 import ninja.leaping.configurate.objectmapping.serialize.ConfigSerializable;
 import org.apache.commons.lang3.StringUtils;
@@ -31,6 +32,9 @@ import org.spongepowered.api.world.World;
 
 @ConfigSerializable
 public class WorldConfig {
+
+  public enum RegenMethod {BLOCKS, REGION_FILE}
+
   private static final UUID NIL_UUID = new UUID(0, 0);
 
   @Setting(value = "SkyClaims-World-UUID", comment = "Sponge UUID of the world to manage islands in")
@@ -48,6 +52,31 @@ public class WorldConfig {
   private String presetCode = "";
   @Setting(value = "Regen-On-Create", comment = "If enabled, SkyClaims will regen the target region before an island is created.")
   private boolean regenOnCreate = false;
+  @Setting(value = "Regen-Method", comment = "How a region is cleared when an island is reset, removed or created with Regen-On-Create. Supports [BLOCKS, REGION_FILE]\n"
+      + "BLOCKS sets every block using the Preset-Code. REGION_FILE unloads the region and empties its .mca file, letting the world generator "
+      + "recreate it. REGION_FILE is experimental: it relies on the server having finished writing the region's chunks, "
+      + "and falls back to BLOCKS if chunks are written to the file after it is emptied. It is only used with a void preset. Default: BLOCKS")
+  private RegenMethod regenMethod = RegenMethod.BLOCKS;
+  @Setting(value = "Regen-Tick-Budget", comment = "The maximum milliseconds per tick spent regenerating chunks, shared by every region being regenerated. Default: 10")
+  private int regenTickBudget = 10;
+  @Setting(value = "Regen-Min-TPS", comment = "Below this TPS, the regeneration tick budget shrinks with the TPS, "
+      + "down to a single chunk per second at half of this TPS. Default: 15.0")
+  private double regenMinTps = 15.0;
+  @Setting(value = "Paste-Blocks-Per-Tick", comment = "If set, schematics are pasted over several ticks, setting at most this many blocks each tick. "
+      + "Useful for large schematics. 0 to paste schematics at once. Default: 0")
+  private int pasteBlocksPerTick = 0;
+  @Setting(value = "Island-Pool-Size", comment = "The number of regions to clear ahead of time so new islands can be created instantly. 0 to disable. Default: 0")
+  private int islandPoolSize = 0;
+  @Setting(value = "Island-Pool-Schematic", comment = "The name of a schematic to paste into pooled regions ahead of time. "
+      + "Islands created with another schematic still use a pooled region, which is cleared again before their schematic is pasted. "
+      + "Leave empty to only clear pooled regions.")
+  private String islandPoolSchematic = "";
+  @Setting(value = "Region-Pattern", comment = "The order in which regions are allocated to new islands. Supports [SPIRAL, HILBERT, RANDOM]\n"
+      + "SPIRAL grows outward from spawn, HILBERT keeps recently created islands in neighboring region files "
+      + "and RANDOM scatters islands near spawn. Default: SPIRAL")
+  private RegionPatternType regionPattern = RegionPatternType.SPIRAL;
+  @Setting(value = "Region-Pattern-Seed", comment = "The seed used to place islands when using the RANDOM region pattern.")
+  private long regionPatternSeed = 0;
 
   public Optional<UUID> getWorldUuid() {
     return worldUuid.equals(NIL_UUID) ? Optional.empty() : Optional.of(worldUuid);
@@ -101,4 +130,36 @@ public class WorldConfig {
   public boolean isRegenOnCreate() {
     return regenOnCreate;
   }
+
+  public RegenMethod getRegenMethod() {
+    return regenMethod;
+  }
+
+  public int getRegenTickBudget() {
+    return Math.max(1, Math.min(50, regenTickBudget));
+  }
+
+  public double getRegenMinTps() {
+    return regenMinTps;
+  }
+
+  public int getPasteBlocksPerTick() {
+    return Math.max(0, pasteBlocksPerTick);
+  }
+
+  public int getIslandPoolSize() {
+    return Math.max(0, islandPoolSize);
+  }
+
+  public String getIslandPoolSchematic() {
+    return islandPoolSchematic;
+  }
+
+  public RegionPatternType getRegionPattern() {
+    return regionPattern;
+  }
+
+  public long getRegionPatternSeed() {
+    return regionPatternSeed;
+  }
 }
\ No newline at end of file
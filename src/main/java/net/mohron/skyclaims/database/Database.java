@@ -18,80 +18,248 @@
 
 package net.mohron.skyclaims.database;
 
-import com.flowpowered.math.vector.Vector3d;
+import com.flowpowered.math.vector.Vector3i;
+import com.google.common.base.Strings;
 import com.google.common.collect.Maps;
+import java.nio.ByteBuffer;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import net.mohron.skyclaims.SkyClaims;
 import net.mohron.skyclaims.world.Island;
+import net.mohron.skyclaims.world.region.RegionOccupancy;
 
 public abstract class Database implements IDatabase {
 
+  private static final String SAVE_ISLAND = "REPLACE INTO islands(island, owner, claim, spawnX, spawnY, spawnZ, locked) VALUES(?, ?, ?, ?, ?, ?, ?)";
+  private static final String DELETE_ISLAND = "DELETE FROM islands WHERE island = ?";
+  // Rows sent to the database in each round trip
+  private static final int BATCH_SIZE = 1000;
+  static final int SCHEMA_VERSION = 3;
+
+  private final IslandWriteQueue writeQueue = new IslandWriteQueue(this);
+
+  /**
+   * Borrows a connection from the pool. The connection must be closed to return it.
+   */
   abstract Connection getConnection() throws SQLException;
 
-  /***
-   * Creates a table using SQL syntax for Sqlite or Mysql
+  /**
+   * @return The column type used to store a UUID as 16 bytes
    */
-  void createTable() {
-    try (Statement statement = getConnection().createStatement()) {
-      statement.setQueryTimeout(30);
+  abstract String getUuidType();
+
+  /**
+   * Called once before the schema is migrated from an existing version
+   */
+  void backup() {
+  }
 
-      // Create the database schema
-      String table = "CREATE TABLE IF NOT EXISTS islands (" +
-          "island			STRING PRIMARY KEY," +
-          "owner			STRING," +
-          "claim			STRING," +
-          "spawnX			INT," +
-          "spawnY			INT," +
-          "spawnZ			INT," +
-          "locked			BOOLEAN" +
-          ")";
-
-      // Create the islands table (execute statement)
-      statement.executeUpdate(table);
+  /**
+   * Brings the schema up to the current version, one migration at a time. Each migration is applied in a transaction
+   * along with the version it reaches, which is recorded in the schema_version table.
+   */
+  void migrate() {
+    int version;
+    boolean existing;
+    try (Connection connection = getConnection()) {
+      existing = hasTable(connection, "islands");
+      version = getSchemaVersion(connection);
     } catch (SQLException e) {
-      SkyClaims.getInstance().getLogger().error("Unable to create SkyClaims database", e);
+      SkyClaims.getInstance().getLogger().error("Unable to read the SkyClaims database schema version", e);
+      return;
+    }
+    if (existing && version < SCHEMA_VERSION) {
+      backup();
+    }
+    for (; version < SCHEMA_VERSION; version++) {
+      SkyClaims.getInstance().getLogger().info("Migrating the SkyClaims database to schema version {}.", version + 1);
+      try (Connection connection = getConnection()) {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+          migrate(connection, version);
+          try (PreparedStatement statement = connection.prepareStatement("UPDATE schema_version SET version = ?")) {
+            statement.setInt(1, version + 1);
+            statement.executeUpdate();
+          }
+          connection.commit();
+        } catch (SQLException | RuntimeException e) {
+          connection.rollback();
+          throw e;
+        } finally {
+          connection.setAutoCommit(autoCommit);
+        }
+      } catch (SQLException | RuntimeException e) {
+        SkyClaims.getInstance().getLogger().error(String.format("Unable to migrate the SkyClaims database to schema version %d", version + 1), e);
+        return;
+      }
     }
   }
 
   /**
-   * Creates Island objects and stores them in a DataStore to be loaded into memory
+   * Migrates the schema from a version to the next
    *
-   * @return Returns a new DataStore generated from the database data
+   * @param connection the connection to migrate with, in a transaction
+   * @param version the current schema version
    */
-  public Map<UUID, Island> loadData() {
-    HashMap<UUID, Island> islands = Maps.newHashMap();
+  void migrate(Connection connection, int version) throws SQLException {
+    try (Statement statement = connection.createStatement()) {
+      statement.setQueryTimeout(30);
+      switch (version) {
+        case 0:
+          // The original schema, with UUIDs stored as text
+          statement.executeUpdate("CREATE TABLE IF NOT EXISTS islands (" +
+              "island			VARCHAR(36) PRIMARY KEY," +
+              "owner			VARCHAR(36)," +
+              "claim			VARCHAR(36)," +
+              "spawnX			INT," +
+              "spawnY			INT," +
+              "spawnZ			INT," +
+              "locked			BOOLEAN" +
+              ")");
+          break;
+        case 1:
+          // UUIDs stored as 16 bytes, with the islands indexed by owner and claim. Statements that change tables commit
+          // implicitly on MySQL, so each step is skipped if an interrupted attempt has already completed it.
+          if (hasTable(connection, "islands") && isTextIslandsTable(connection)) {
+            statement.executeUpdate("DROP TABLE IF EXISTS islands_v2");
+            statement.executeUpdate("CREATE TABLE islands_v2 (" +
+                "island			" + getUuidType() + " PRIMARY KEY," +
+                "owner			" + getUuidType() + " NOT NULL," +
+                "claim			" + getUuidType() + "," +
+                "spawnX			INT," +
+                "spawnY			INT," +
+                "spawnZ			INT," +
+                "locked			BOOLEAN" +
+                ")");
+            copyTextIslands(connection);
+            statement.executeUpdate("DROP TABLE islands");
+          }
+          if (hasTable(connection, "islands_v2")) {
+            statement.executeUpdate("ALTER TABLE islands_v2 RENAME TO islands");
+          }
+          if (!hasIndex(connection, "islands_owner")) {
+            statement.executeUpdate("CREATE INDEX islands_owner ON islands (owner)");
+          }
+          if (!hasIndex(connection, "islands_claim")) {
+            statement.executeUpdate("CREATE INDEX islands_claim ON islands (claim)");
+          }
+          break;
+        case 2:
+          // The region occupancy table, a single row holding the occupied region bitmap. Databases created before
+          // versions were recorded may be missing it.
+          statement.executeUpdate("CREATE TABLE IF NOT EXISTS region_occupancy (" +
+              "id				INT PRIMARY KEY," +
+              "bitmap			BLOB" +
+              ")");
+          break;
+        default:
+          throw new IllegalStateException("Unknown schema version " + version);
+      }
+    }
+  }
 
-    try (Statement statement = getConnection().createStatement();
-        ResultSet results = statement.executeQuery("SELECT * FROM islands")) {
+  /**
+   * Gets the version of the schema, creating the schema_version table if needed. A database created before versions
+   * were recorded is at version 1 if it has an islands table in the current layout, and otherwise at version 0.
+   */
+  int getSchemaVersion(Connection connection) throws SQLException {
+    try (Statement statement = connection.createStatement()) {
+      statement.executeUpdate("CREATE TABLE IF NOT EXISTS schema_version (version INT NOT NULL)");
+      try (ResultSet results = statement.executeQuery("SELECT version FROM schema_version")) {
+        if (results.next()) {
+          return results.getInt("version");
+        }
+      }
+      int version = hasTable(connection, "islands") && countColumns() == 7 ? 1 : 0;
+      statement.executeUpdate("INSERT INTO schema_version(version) VALUES (" + version + ")");
+      return version;
+    }
+  }
 
+  boolean hasTable(Connection connection, String table) throws SQLException {
+    try (ResultSet tables = connection.getMetaData().getTables(connection.getCatalog(), null, table, null)) {
+      return tables.next();
+    }
+  }
+
+  private static boolean hasIndex(Connection connection, String index) throws SQLException {
+    try (ResultSet indexes = connection.getMetaData().getIndexInfo(connection.getCatalog(), null, "islands", false, false)) {
+      while (indexes.next()) {
+        if (index.equalsIgnoreCase(indexes.getString("INDEX_NAME"))) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * @return true if the islands table still stores UUIDs as text. Older tables were created with a STRING column on
+   * SQLite and VARCHAR on MySQL, so any column that is not binary is treated as text.
+   */
+  private static boolean isTextIslandsTable(Connection connection) throws SQLException {
+    try (ResultSet columns = connection.getMetaData().getColumns(connection.getCatalog(), null, "islands", "island")) {
+      if (!columns.next()) {
+        return false;
+      }
+      String type = Strings.nullToEmpty(columns.getString("TYPE_NAME")).toUpperCase();
+      return !type.contains("BINARY") && !type.contains("BLOB");
+    }
+  }
+
+  private void copyTextIslands(Connection connection) throws SQLException {
+    String sql = "INSERT INTO islands_v2(island, owner, claim, spawnX, spawnY, spawnZ, locked) VALUES(?, ?, ?, ?, ?, ?, ?)";
+    try (Statement select = connection.createStatement();
+        ResultSet results = select.executeQuery("SELECT * FROM islands");
+        PreparedStatement insert = connection.prepareStatement(sql)) {
+      int count = 0;
       while (results.next()) {
-        UUID islandId = UUID.fromString(results.getString("island"));
-        UUID ownerId = UUID.fromString(results.getString("owner"));
-        UUID claimId = UUID.fromString(results.getString("claim"));
-        int x = results.getInt("spawnX");
-        int y = results.getInt("spawnY");
-        int z = results.getInt("spawnZ");
-        boolean locked = results.getBoolean("locked");
-
-        Vector3d spawnLocation = new Vector3d(x, y, z);
-        Island island = new Island(islandId, ownerId, claimId, spawnLocation, locked);
-
-        islands.put(islandId, island);
+        String claim = results.getString("claim");
+        bind(insert, new IslandRecord(
+            UUID.fromString(results.getString("island")),
+            UUID.fromString(results.getString("owner")),
+            claim == null || claim.length() != 36 ? UUID.randomUUID() : UUID.fromString(claim),
+            new Vector3i(results.getInt("spawnX"), results.getInt("spawnY"), results.getInt("spawnZ")),
+            results.getBoolean("locked")
+        ));
+        insert.addBatch();
+        if (++count % BATCH_SIZE == 0) {
+          insert.executeBatch();
+        }
       }
-      return islands;
-    } catch (SQLException e) {
-      SkyClaims.getInstance().getLogger().error("Unable to read from the database.", e);
+      if (count % BATCH_SIZE != 0) {
+        insert.executeBatch();
+      }
+      SkyClaims.getInstance().getLogger().info("Converted {} islands to the new schema.", count);
     }
+  }
 
-    SkyClaims.getInstance().getLogger().info("Loaded SkyClaims MySQL Data. Count: {}", islands.size());
+  /**
+   * Creates Island objects and stores them in a DataStore to be loaded into memory
+   *
+   * @return Returns a new DataStore generated from the database data
+   */
+  public Map<UUID, Island> loadData() {
+    HashMap<UUID, Island> islands = Maps.newHashMap();
+
+    streamAll(record -> islands.put(record.getId(), new Island(
+        record.getId(), record.getOwner(), record.getClaim(), record.getSpawn().toDouble(), record.isLocked()
+    )));
+
+    SkyClaims.getInstance().getLogger().info("Loaded SkyClaims Data. Count: {}", islands.size());
     return islands;
   }
 
@@ -101,9 +269,7 @@ public abstract class Database implements IDatabase {
    * @param islands The collection in memory to pull the data from
    */
   public void saveData(Collection<Island> islands) {
-    for (Island island : islands) {
-      saveIsland(island);
-    }
+    saveAll(islands);
   }
 
   /**
@@ -112,48 +278,198 @@ public abstract class Database implements IDatabase {
    * @param islands The map in memory to pull the data from
    */
   public void saveData(Map<UUID, Island> islands) {
-    for (Island island : islands.values()) {
-      saveIsland(island);
+    saveAll(islands.values());
+  }
+
+  /**
+   * Saves every island in a single transaction, bypassing the write queue
+   *
+   * @param islands the islands to save
+   */
+  public void saveAll(Collection<Island> islands) {
+    try {
+      write(islands.stream().map(IslandRecord::of).collect(Collectors.toList()), Collections.emptyList());
+    } catch (SQLException e) {
+      SkyClaims.getInstance().getLogger().error(String.format("Error saving %d islands to the database:", islands.size()), e);
     }
   }
 
   /**
-   * Saves an individual island to the database
+   * Removes every island in a single transaction on the database writer, discarding any queued changes to them
+   *
+   * @param islands the islands to remove
+   * @return a future completed once the islands have been removed
+   */
+  public CompletableFuture<Void> deleteAll(Collection<Island> islands) {
+    return writeQueue.deleteAll(islands.stream().map(Island::getUniqueId).collect(Collectors.toList()));
+  }
+
+  /**
+   * Reads every island row, passing each to the consumer as it is read. Rows are fetched from the database in batches
+   * rather than all at once.
+   *
+   * @param consumer the consumer of the rows
+   */
+  public void streamAll(Consumer<IslandRecord> consumer) {
+    try (Connection connection = getConnection();
+        Statement statement = connection.createStatement()) {
+      statement.setFetchSize(BATCH_SIZE);
+      try (ResultSet results = statement.executeQuery("SELECT island, owner, claim, spawnX, spawnY, spawnZ, locked FROM islands")) {
+        while (results.next()) {
+          consumer.accept(read(results));
+        }
+      }
+    } catch (SQLException e) {
+      SkyClaims.getInstance().getLogger().error("Unable to read from the database:", e);
+    }
+  }
+
+  private static IslandRecord read(ResultSet results) throws SQLException {
+    byte[] claim = results.getBytes("claim");
+    return new IslandRecord(
+        fromBytes(results.getBytes("island")),
+        fromBytes(results.getBytes("owner")),
+        // A missing claim id is replaced, and the claim is found again by location when the island is loaded
+        claim == null || claim.length != 16 ? UUID.randomUUID() : fromBytes(claim),
+        new Vector3i(results.getInt("spawnX"), results.getInt("spawnY"), results.getInt("spawnZ")),
+        results.getBoolean("locked")
+    );
+  }
+
+  private static void bind(PreparedStatement statement, IslandRecord island) throws SQLException {
+    statement.setBytes(1, toBytes(island.getId()));
+    statement.setBytes(2, toBytes(island.getOwner()));
+    statement.setBytes(3, toBytes(island.getClaim()));
+    statement.setInt(4, island.getSpawn().getX());
+    statement.setInt(5, island.getSpawn().getY());
+    statement.setInt(6, island.getSpawn().getZ());
+    statement.setBoolean(7, island.isLocked());
+  }
+
+  private static byte[] toBytes(UUID uuid) {
+    return ByteBuffer.allocate(16).putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits()).array();
+  }
+
+  private static UUID fromBytes(byte[] bytes) {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    return new UUID(buffer.getLong(), buffer.getLong());
+  }
+
+  /**
+   * Queues an individual island to be saved to the database
    *
    * @param island the island to save
+   * @return a future completed once the island has been written, or completed exceptionally if the write is still
+   * failing after several attempts
+   */
+  public CompletableFuture<Void> saveIsland(Island island) {
+    return writeQueue.save(IslandRecord.of(island));
+  }
+
+  /**
+   * Queues an individual island to be removed from the database
+   *
+   * @param island the island to remove
+   * @return a future completed once the island has been removed, or completed exceptionally if the write is still
+   * failing after several attempts
    */
-  public void saveIsland(Island island) {
-    String sql = "REPLACE INTO islands(island, owner, claim, spawnX, spawnY, spawnZ, locked) VALUES(?, ?, ?, ?, ?, ?, ?)";
+  public CompletableFuture<Void> removeIsland(Island island) {
+    return writeQueue.delete(island.getUniqueId());
+  }
+
+  public IslandWriteQueue getWriteQueue() {
+    return writeQueue;
+  }
 
-    try (PreparedStatement statement = getConnection().prepareStatement(sql)) {
-      statement.setString(1, island.getUniqueId().toString());
-      statement.setString(2, island.getOwnerUniqueId().toString());
-      statement.setString(3, island.getClaimUniqueId().toString());
-      statement.setInt(4, island.getSpawn().getLocation().getBlockX());
-      statement.setInt(5, island.getSpawn().getLocation().getBlockY());
-      statement.setInt(6, island.getSpawn().getLocation().getBlockZ());
-      statement.setBoolean(7, island.isLocked());
+  /**
+   * Writes any queued island changes and stops the database writer
+   */
+  public void close() {
+    writeQueue.close();
+  }
 
-      statement.execute();
+  /**
+   * Saves and removes islands in a single transaction, sending the rows in batches
+   *
+   * @param saves the islands to insert or update
+   * @param deletes the ids of the islands to remove
+   * @throws SQLException if the transaction failed and was rolled back
+   */
+  void write(Collection<IslandRecord> saves, Collection<UUID> deletes) throws SQLException {
+    try (Connection connection = getConnection()) {
+      boolean autoCommit = connection.getAutoCommit();
+      connection.setAutoCommit(false);
+      try (PreparedStatement save = connection.prepareStatement(SAVE_ISLAND);
+          PreparedStatement delete = connection.prepareStatement(DELETE_ISLAND)) {
+        int count = 0;
+        for (IslandRecord island : saves) {
+          bind(save, island);
+          save.addBatch();
+          if (++count % BATCH_SIZE == 0) {
+            save.executeBatch();
+          }
+        }
+        if (count % BATCH_SIZE != 0) {
+          save.executeBatch();
+        }
+        count = 0;
+        for (UUID island : deletes) {
+          delete.setBytes(1, toBytes(island));
+          delete.addBatch();
+          if (++count % BATCH_SIZE == 0) {
+            delete.executeBatch();
+          }
+        }
+        if (count % BATCH_SIZE != 0) {
+          delete.executeBatch();
+        }
+        connection.commit();
+      } catch (SQLException e) {
+        connection.rollback();
+        throw e;
+      } finally {
+        connection.setAutoCommit(autoCommit);
+      }
+    }
+  }
+
+  /**
+   * Loads the region occupancy bitmap stored alongside the islands
+   *
+   * @return The stored occupancy, or empty if none has been saved
+   */
+  public Optional<RegionOccupancy> loadOccupancy() {
+    String sql = "SELECT bitmap FROM region_occupancy WHERE id = 1";
+
+    try (Connection connection = getConnection();
+        PreparedStatement statement = connection.prepareStatement(sql);
+        ResultSet results = statement.executeQuery()) {
+      if (results.next()) {
+        return Optional.of(RegionOccupancy.fromByteArray(results.getBytes("bitmap")));
+      }
     } catch (SQLException e) {
-      SkyClaims.getInstance().getLogger().error("Error inserting Island into the database:", e);
+      SkyClaims.getInstance().getLogger().error("Unable to read region occupancy from the database:", e);
     }
+    return Optional.empty();
   }
 
   /**
-   * removes an individual island to the database
+   * Queues the region occupancy bitmap to be saved with the next flush of the write queue. Only the latest bitmap
+   * queued before a flush is written.
    *
-   * @param island the island to remove
+   * @param occupancy the occupancy to save, which is copied before this returns
    */
-  public void removeIsland(Island island) {
-    String sql = "DELETE FROM islands WHERE island = ?";
+  public void saveOccupancy(RegionOccupancy occupancy) {
+    writeQueue.saveOccupancy(occupancy.toByteArray());
+  }
 
-    try (PreparedStatement statement = getConnection().prepareStatement(sql)) {
-      statement.setString(1, island.getUniqueId().toString());
+  void writeOccupancy(byte[] bitmap) throws SQLException {
+    String sql = "REPLACE INTO region_occupancy(id, bitmap) VALUES(1, ?)";
 
+    try (Connection connection = getConnection();
+        PreparedStatement statement = connection.prepareStatement(sql)) {
+      statement.setBytes(1, bitmap);
       statement.execute();
-    } catch (SQLException e) {
-      SkyClaims.getInstance().getLogger().error("Error removing Island from the database:", e);
     }
   }
 
@@ -166,7 +482,8 @@ public abstract class Database implements IDatabase {
     int total = 0;
 
     String sql = "SELECT * FROM islands LIMIT 1";
-    try (PreparedStatement statement = getConnection().prepareStatement(sql);
+    try (Connection connection = getConnection();
+        PreparedStatement statement = connection.prepareStatement(sql);
         ResultSet rs = statement.executeQuery()) {
       return rs.getMetaData().getColumnCount();
     } catch (SQLException e) {
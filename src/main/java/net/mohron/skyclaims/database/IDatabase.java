@@ -20,8 +20,12 @@ package net.mohron.skyclaims.database;
 
 import java.util.Collection;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import net.mohron.skyclaims.world.Island;
+import net.mohron.skyclaims.world.region.RegionOccupancy;
 
 public interface IDatabase {
 
@@ -31,7 +35,21 @@ public interface IDatabase {
 
   void saveData(Map<UUID, Island> islands);
 
-  void saveIsland(Island island);
+  void saveAll(Collection<Island> islands);
 
-  void removeIsland(Island island);
+  CompletableFuture<Void> deleteAll(Collection<Island> islands);
+
+  void streamAll(Consumer<IslandRecord> consumer);
+
+  CompletableFuture<Void> saveIsland(Island island);
+
+  CompletableFuture<Void> removeIsland(Island island);
+
+  IslandWriteQueue getWriteQueue();
+
+  void close();
+
+  Optional<RegionOccupancy> loadOccupancy();
+
+  void saveOccupancy(RegionOccupancy occupancy);
 }
@@ -0,0 +1,73 @@
+/*
+ * SkyClaims - A Skyblock plugin made for Sponge
+ * Copyright (C) 2017 Mohron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SkyClaims is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SkyClaims.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.mohron.skyclaims.database;
+
+import com.flowpowered.math.vector.Vector3i;
+import java.util.UUID;
+import net.mohron.skyclaims.world.Island;
+
+/**
+ * An immutable copy of the persisted fields of an island, as stored in one row of the islands table.
+ */
+public final class IslandRecord {
+
+  private final UUID id;
+  private final UUID owner;
+  private final UUID claim;
+  private final Vector3i spawn;
+  private final boolean locked;
+
+  public IslandRecord(UUID id, UUID owner, UUID claim, Vector3i spawn, boolean locked) {
+    this.id = id;
+    this.owner = owner;
+    this.claim = claim;
+    this.spawn = spawn;
+    this.locked = locked;
+  }
+
+  public static IslandRecord of(Island island) {
+    return new IslandRecord(
+        island.getUniqueId(),
+        island.getOwnerUniqueId(),
+        island.getClaimUniqueId(),
+        island.getSpawn().getLocation().getBlockPosition(),
+        island.isLocked()
+    );
+  }
+
+  public UUID getId() {
+    return id;
+  }
+
+  public UUID getOwner() {
+    return owner;
+  }
+
+  public UUID getClaim() {
+    return claim;
+  }
+
+  public Vector3i getSpawn() {
+    return spawn;
+  }
+
+  public boolean isLocked() {
+    return locked;
+  }
+}
@@ -0,0 +1,272 @@
+/*
+ * SkyClaims - A Skyblock plugin made for Sponge
+ * Copyright (C) 2017 Mohron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SkyClaims is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SkyClaims.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.mohron.skyclaims.database;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import net.mohron.skyclaims.SkyClaims;
+import net.mohron.skyclaims.util.LatencyHistogram;
+
+/**
+ * Writes island changes to the database in the background. Changes to the same island are coalesced until the next
+ * flush, and each flush writes every pending change in batched transactions on a dedicated thread. A failed batch is
+ * queued again, unless the island has changed since. Once a change has failed {@link #MAX_ATTEMPTS} times, those
+ * waiting on it are failed, but the change is still retried until it is written.
+ */
+public final class IslandWriteQueue {
+
+  private static final long FLUSH_INTERVAL_MILLIS = 1000;
+  private static final long CLOSE_TIMEOUT_SECONDS = 30;
+  private static final int BATCH_SIZE = 500;
+  private static final int MAX_ATTEMPTS = 3;
+
+  private final Database database;
+  private final Map<UUID, Write> pending = Maps.newLinkedHashMap();
+  private byte[] pendingOccupancy;
+  private final ScheduledExecutorService executor;
+  private final LatencyHistogram flushLatency = new LatencyHistogram();
+  private final AtomicLong written = new AtomicLong();
+
+  IslandWriteQueue(Database database) {
+    this.database = database;
+    this.executor = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("SkyClaims Database Writer").setDaemon(true).build()
+    );
+    this.executor.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * @return a future completed once the record, or a later change to the same island, has been written, or completed
+   * exceptionally if it could not be written after several attempts
+   */
+  CompletableFuture<Void> save(IslandRecord record) {
+    return enqueue(record.getId(), record);
+  }
+
+  /**
+   * @return a future completed once the island has been removed, or a later change to it has been written, or completed
+   * exceptionally if it could not be written after several attempts
+   */
+  CompletableFuture<Void> delete(UUID id) {
+    return enqueue(id, null);
+  }
+
+  /**
+   * Removes the islands in a single transaction on the writer thread, after any flush already in progress. Changes to
+   * them still waiting to be written are discarded. If the transaction fails, each island is queued to be removed.
+   *
+   * @return a future completed once the islands have been removed
+   */
+  CompletableFuture<Void> deleteAll(Collection<UUID> ids) {
+    List<UUID> removed = ImmutableList.copyOf(ids);
+    List<Write> discarded = Lists.newArrayList();
+    synchronized (this) {
+      for (UUID id : removed) {
+        Write write = pending.remove(id);
+        if (write != null) {
+          discarded.add(write);
+        }
+      }
+    }
+    CompletableFuture<Void> future = CompletableFuture.supplyAsync(() -> {
+      try {
+        database.write(Collections.emptyList(), removed);
+        written.addAndGet(removed.size());
+        return CompletableFuture.<Void>completedFuture(null);
+      } catch (SQLException e) {
+        SkyClaims.getInstance().getLogger().error(String.format("Unable to remove %d islands from the database, retrying.", removed.size()), e);
+        return CompletableFuture.allOf(removed.stream().map(this::delete).toArray(CompletableFuture[]::new));
+      }
+    }, executor).thenCompose(Function.identity());
+    discarded.forEach(write -> future.whenComplete((v, throwable) -> {
+      if (throwable != null) {
+        write.future.completeExceptionally(throwable);
+      } else {
+        write.future.complete(null);
+      }
+    }));
+    return future;
+  }
+
+  /**
+   * Queues the region occupancy bitmap to be written with the next flush, replacing any bitmap still waiting.
+   */
+  synchronized void saveOccupancy(byte[] bitmap) {
+    pendingOccupancy = bitmap;
+  }
+
+  private synchronized CompletableFuture<Void> enqueue(UUID id, @Nullable IslandRecord record) {
+    Write write = pending.computeIfAbsent(id, Write::new);
+    write.record = record;
+    return write.future;
+  }
+
+  /**
+   * @return The number of islands with changes waiting to be written
+   */
+  public synchronized int getDepth() {
+    return pending.size();
+  }
+
+  public LatencyHistogram getFlushLatency() {
+    return flushLatency;
+  }
+
+  /**
+   * @return The number of island changes written since the server started
+   */
+  public long getWritten() {
+    return written.get();
+  }
+
+  /**
+   * Writes every pending change on the writer thread and waits for it, so the database can be read back without losing
+   * changes that were still queued.
+   *
+   * @return false if some changes could not be written
+   */
+  public boolean drain() {
+    try {
+      executor.submit(this::flush).get(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (ExecutionException | TimeoutException e) {
+      SkyClaims.getInstance().getLogger().error("Unable to write pending changes to the database.", e);
+      return false;
+    }
+    synchronized (this) {
+      return pending.isEmpty() && pendingOccupancy == null;
+    }
+  }
+
+  /**
+   * Stops the writer thread once every pending change has been written.
+   */
+  void close() {
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        SkyClaims.getInstance().getLogger().warn("Timed out waiting for the database writer to stop.");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    // Anything queued while the writer was stopping
+    flush();
+  }
+
+  private void flush() {
+    List<Write> writes;
+    byte[] occupancy;
+    synchronized (this) {
+      if (pending.isEmpty() && pendingOccupancy == null) {
+        return;
+      }
+      writes = Lists.newArrayList(pending.values());
+      pending.clear();
+      occupancy = pendingOccupancy;
+      pendingOccupancy = null;
+    }
+
+    long start = System.nanoTime();
+    for (List<Write> batch : Lists.partition(writes, BATCH_SIZE)) {
+      List<IslandRecord> saves = Lists.newArrayList();
+      List<UUID> deletes = Lists.newArrayList();
+      for (Write write : batch) {
+        if (write.record != null) {
+          saves.add(write.record);
+        } else {
+          deletes.add(write.id);
+        }
+      }
+      try {
+        database.write(saves, deletes);
+        written.addAndGet(batch.size());
+        batch.forEach(write -> write.future.complete(null));
+      } catch (SQLException e) {
+        SkyClaims.getInstance().getLogger().error(String.format("Unable to write %d islands to the database, retrying.", batch.size()), e);
+        requeue(batch, e);
+      }
+    }
+    if (occupancy != null) {
+      try {
+        database.writeOccupancy(occupancy);
+      } catch (SQLException e) {
+        SkyClaims.getInstance().getLogger().error("Unable to write region occupancy to the database, retrying.", e);
+        synchronized (this) {
+          if (pendingOccupancy == null) {
+            pendingOccupancy = occupancy;
+          }
+        }
+      }
+    }
+    flushLatency.record(System.nanoTime() - start);
+  }
+
+  private synchronized void requeue(List<Write> batch, SQLException cause) {
+    for (Write write : batch) {
+      Write newer = pending.putIfAbsent(write.id, write);
+      if (newer != null) {
+        CompletableFuture<Void> future = write.future;
+        newer.future.whenComplete((v, throwable) -> {
+          if (throwable != null) {
+            future.completeExceptionally(throwable);
+          } else {
+            future.complete(null);
+          }
+        });
+      } else if (++write.attempts >= MAX_ATTEMPTS) {
+        // Keep the change queued, but stop making callers wait through an outage for it
+        write.future.completeExceptionally(cause);
+        write.future = new CompletableFuture<>();
+        write.attempts = 0;
+      }
+    }
+  }
+
+  private static final class Write {
+
+    private final UUID id;
+    private CompletableFuture<Void> future = new CompletableFuture<>();
+    private IslandRecord record;
+    private int attempts = 0;
+
+    private Write(UUID id) {
+      this.id = id;
+    }
+  }
+}
@@ -18,11 +18,15 @@
 
 package net.mohron.skyclaims.database;
 
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import javax.sql.DataSource;
 import net.mohron.skyclaims.SkyClaims;
 import net.mohron.skyclaims.config.type.MysqlConfig;
+import org.spongepowered.api.Sponge;
+import org.spongepowered.api.service.sql.SqlService;
 
 public class MysqlDatabase extends Database {
 
@@ -34,6 +38,7 @@ public class MysqlDatabase extends Database {
   private String username;
   private String password;
   private Integer port;
+  private DataSource dataSource;
 
   public MysqlDatabase() {
     this.config = SkyClaims.getInstance().getConfig().getStorageConfig().getMysqlConfig();
@@ -43,21 +48,30 @@ public class MysqlDatabase extends Database {
     username = config.getUsername();
     password = config.getPassword();
     port = config.getPort();
-    connectionString = String.format("jdbc:mysql://%s:%s/%s", databaseLocation, port, databaseName);
 
     try {
       Class.forName("com.mysql.jdbc.Driver");
-      getConnection();
+      // Cursor fetch lets result sets honour their fetch size instead of being read into memory at once
+      connectionString = String.format("jdbc:mysql://%s:%s@%s:%s/%s?useCursorFetch=true",
+          URLEncoder.encode(username, "UTF-8"), URLEncoder.encode(password, "UTF-8"), databaseLocation, port, databaseName);
+      // Sponge's SQL service pools the connections of each data source
+      dataSource = Sponge.getServiceManager().provideUnchecked(SqlService.class).getDataSource(SkyClaims.getInstance(), connectionString);
+      getConnection().close();
     } catch (ClassNotFoundException e) {
       SkyClaims.getInstance().getLogger().error("Unable to load MySQL JDBC driver!", e);
-    } catch (SQLException e) {
+    } catch (SQLException | UnsupportedEncodingException e) {
       SkyClaims.getInstance().getLogger().error("Unable to connect to the database:", e);
     }
 
-    createTable();
+    migrate();
+  }
+
+  @Override
+  String getUuidType() {
+    return "BINARY(16)";
   }
 
   Connection getConnection() throws SQLException {
-    return DriverManager.getConnection(connectionString, username, password);
+    return dataSource.getConnection();
   }
 }
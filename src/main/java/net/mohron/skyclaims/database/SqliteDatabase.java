@@ -18,28 +18,28 @@
 
 package net.mohron.skyclaims.database;
 
-import com.flowpowered.math.vector.Vector3d;
-import com.google.common.collect.Maps;
+import com.flowpowered.math.vector.Vector3i;
+import com.google.common.collect.Lists;
 import com.google.common.io.Files;
 import java.io.File;
 import java.io.IOException;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 import java.util.UUID;
+import javax.sql.DataSource;
 import net.mohron.skyclaims.SkyClaims;
 import net.mohron.skyclaims.config.type.StorageConfig;
-import net.mohron.skyclaims.world.Island;
+import org.spongepowered.api.Sponge;
+import org.spongepowered.api.service.sql.SqlService;
 
 public class SqliteDatabase extends Database {
 
   private StorageConfig config;
-  private Connection dbConnection;
+  private DataSource dataSource;
 
   public SqliteDatabase() {
     this.config = SkyClaims.getInstance().getConfig().getStorageConfig();
@@ -47,8 +47,10 @@ public class SqliteDatabase extends Database {
     // Load the SQLite JDBC driver
     try {
       Class.forName("org.sqlite.JDBC");
-      dbConnection = DriverManager.getConnection(
-          String.format("jdbc:sqlite:%s%sskyclaims.db", config.getLocation(), File.separator));
+      // Sponge's SQL service pools the connections of each data source
+      dataSource = Sponge.getServiceManager().provideUnchecked(SqlService.class).getDataSource(
+          SkyClaims.getInstance(), String.format("jdbc:sqlite:%s%sskyclaims.db", config.getLocation(), File.separator));
+      getConnection().close();
       SkyClaims.getInstance().getLogger().info("Successfully connected to SkyClaims SQLite DB.");
     } catch (ClassNotFoundException e) {
       SkyClaims.getInstance().getLogger().error("Unable to load the JDBC driver:", e);
@@ -58,59 +60,63 @@ public class SqliteDatabase extends Database {
       return;
     }
 
-    createTable();
     migrate();
   }
 
+  @Override
+  String getUuidType() {
+    return "BLOB";
+  }
+
   /**
-   * Returns a Connection to the database, by name
+   * Borrows a Connection to the database from the pool, which must be closed to return it
    *
    * @return A Connection object to the database
    * @throws SQLException Thrown if connection issues are encountered
    */
   Connection getConnection() throws SQLException {
-    return dbConnection;
+    return dataSource.getConnection();
   }
 
   /**
-   * Migrates the database from an old schema to a new one
+   * Migrates the schema from a version to the next. Databases from before the islands table held island ids are
+   * converted while creating the first versioned schema.
    */
-  public void migrate() {
-    HashMap<UUID, Island> islands;
-
-    SkyClaims.getInstance().getLogger().info("Table size: {}", countColumns());
-
-    if (countColumns() == 6) {
-      SkyClaims.getInstance().getLogger().info("Migrating the database..");
-
-      backup();
-      islands = loadLegacyData();
-
-      String sql = "DROP TABLE IF EXISTS islands";
-      try (PreparedStatement statement = getConnection().prepareStatement(sql)) {
-
-        SkyClaims.getInstance().getLogger().info("Dropping the islands table..");
-
-        statement.executeUpdate();
-        SkyClaims.getInstance().getLogger().info("Dropped the islands table.");
-
-        SkyClaims.getInstance().getLogger().info("Re-initializing islands table...");
-        createTable();
-        SkyClaims.getInstance().getLogger().info("Re-initialized islands table.");
+  @Override
+  void migrate(Connection connection, int version) throws SQLException {
+    if (version != 0 || !hasTable(connection, "islands") || countColumns() != 6) {
+      super.migrate(connection, version);
+      return;
+    }
 
-        SkyClaims.getInstance().getLogger().info("Repopulating islands table...");
-        saveData(islands);
-        SkyClaims.getInstance().getLogger().info("Repopulated islands table, migration complete.");
-      } catch (SQLException e) {
-        SkyClaims.getInstance().getLogger().error("Unable to drop islands table, check the console:", e);
+    SkyClaims.getInstance().getLogger().info("Migrating the legacy database..");
+    List<IslandRecord> islands = loadLegacyData(connection);
+    try (Statement statement = connection.createStatement()) {
+      statement.executeUpdate("DROP TABLE islands");
+    }
+    super.migrate(connection, version);
+
+    String sql = "INSERT INTO islands(island, owner, claim, spawnX, spawnY, spawnZ, locked) VALUES(?, ?, ?, ?, ?, ?, ?)";
+    try (PreparedStatement statement = connection.prepareStatement(sql)) {
+      for (IslandRecord island : islands) {
+        statement.setString(1, island.getId().toString());
+        statement.setString(2, island.getOwner().toString());
+        statement.setString(3, island.getClaim().toString());
+        statement.setInt(4, island.getSpawn().getX());
+        statement.setInt(5, island.getSpawn().getY());
+        statement.setInt(6, island.getSpawn().getZ());
+        statement.setBoolean(7, island.isLocked());
+        statement.addBatch();
       }
+      statement.executeBatch();
     }
-
+    SkyClaims.getInstance().getLogger().info("Repopulated islands table, legacy migration complete.");
   }
 
   /**
    * Creates a file backup of the existing database in the configured directory
    */
+  @Override
   public void backup() {
     File inputFile = new File(String.format("%s%sskyclaims.db", config.getLocation(), File.separator));
     File outputFile = new File(String.format("%s%sskyclaims_backup.db", config.getLocation(), File.separator));
@@ -122,54 +128,15 @@ public class SqliteDatabase extends Database {
     }
   }
 
-  /**
-   * Creates Island objects and stores them in a DataStore to be loaded into memory
-   *
-   * @return Returns a new DataStore generated from the database data
-   */
-  @Override
-  public Map<UUID, Island> loadData() {
-    HashMap<UUID, Island> islands = Maps.newHashMap();
-
-    try (Statement statement = getConnection().createStatement();
-        ResultSet results = statement.executeQuery("SELECT * FROM islands")) {
-      UUID claimId;
-      while (results.next()) {
-        if (results.getString("claim").length() != 36) {
-          claimId = UUID.randomUUID();
-        } else {
-          claimId = UUID.fromString(results.getString("claim"));
-        }
-        UUID islandId = UUID.fromString(results.getString("island"));
-        UUID ownerId = UUID.fromString(results.getString("owner"));
-
-        int x = results.getInt("spawnX");
-        int y = results.getInt("spawnY");
-        int z = results.getInt("spawnZ");
-        boolean locked = results.getBoolean("locked");
-
-        Vector3d spawnLocation = new Vector3d(x, y, z);
-        Island island = new Island(islandId, ownerId, claimId, spawnLocation, locked);
-
-        islands.put(islandId, island);
-      }
-    } catch (SQLException e) {
-      SkyClaims.getInstance().getLogger().error("Unable to read from the database:", e);
-    }
-
-    SkyClaims.getInstance().getLogger().info("Loaded SkyClaims SQLite Data. Count: {}", islands.size());
-    return islands;
-  }
-
   /**
    * Load legacy data from the database from the previous schema
    *
-   * @return A hashmap of the ported islands
+   * @return A list of the ported islands
    */
-  private HashMap<UUID, Island> loadLegacyData() {
-    HashMap<UUID, Island> islands = Maps.newHashMap();
+  private List<IslandRecord> loadLegacyData(Connection connection) throws SQLException {
+    List<IslandRecord> islands = Lists.newArrayList();
 
-    try (Statement statement = getConnection().createStatement();
+    try (Statement statement = connection.createStatement();
         ResultSet results = statement.executeQuery("SELECT * FROM islands")) {
       while (results.next()) {
         UUID ownerId = UUID.fromString(results.getString("owner"));
@@ -178,17 +145,11 @@ public class SqliteDatabase extends Database {
         int y = results.getInt("y");
         int z = results.getInt("z");
 
-        UUID id = UUID.randomUUID();
-        Vector3d spawnLocation = new Vector3d(x, y, z);
-        Island island = new Island(id, ownerId, claimId, spawnLocation, true);
-
-        islands.put(id, island);
+        islands.add(new IslandRecord(UUID.randomUUID(), ownerId, claimId, new Vector3i(x, y, z), true));
       }
-    } catch (SQLException e) {
-      SkyClaims.getInstance().getLogger().error("Unable to read from the database:", e);
     }
 
     SkyClaims.getInstance().getLogger().info("Loaded SkyClaims SQLite Legacy Data. Count: {}", islands.size());
     return islands;
   }
-}
\ No newline at end of file
+}
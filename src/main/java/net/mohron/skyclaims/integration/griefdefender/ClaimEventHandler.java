@@ -45,6 +45,7 @@ import net.mohron.skyclaims.team.Invite;
 import net.mohron.skyclaims.team.PrivilegeType;
 import net.mohron.skyclaims.world.Island;
 import net.mohron.skyclaims.world.IslandManager;
+import org.spongepowered.api.Sponge;
 import org.spongepowered.api.entity.living.player.Player;
 import org.spongepowered.api.item.ItemType;
 import org.spongepowered.api.item.inventory.Inventory;
@@ -101,16 +102,20 @@ public class ClaimEventHandler {
     }
 
     for (Claim claim : event.getClaims()) {
-      if (claim.getWorldUniqueId().equals(world.getUniqueId()) && IslandManager.getByClaim(claim).isPresent()) {
+      if (!claim.getWorldUniqueId().equals(world.getUniqueId())) {
+        continue;
+      }
+      Island island = IslandManager.getByClaim(claim).orElse(null);
+      if (island != null) {
         if (event instanceof RemoveClaimEvent.Abandon) {
           event.setMessage(TextComponent.of("You cannot abandon an island claim!", TextColor.RED));
         } else {
-          IslandManager.getByClaim(claim).ifPresent((Island island) -> event.setMessage(toComponent(Text.of(
+          event.setMessage(toComponent(Text.of(
               PREFIX, TextColors.RED, "A claim you are attempting to delete belongs to an island.", Text.NEW_LINE,
               Text.of(TextColors.AQUA, "Do you want to delete ", island.getOwnerName(), "'s island?").toBuilder()
                   .onHover(TextActions.showText(Text.of("Click here to delete.")))
                   .onClick(TextActions.executeCallback(src -> island.delete()))
-          ))));
+          )));
         }
         event.cancelled(true);
       }
@@ -179,12 +184,12 @@ public class ClaimEventHandler {
     World world = PLUGIN.getConfig().getWorldConfig().getWorld();
     Claim claim = event.getClaim();
 
-    if (!claim.getWorldUniqueId().equals(world.getUniqueId()) || !IslandManager.getByClaim(claim).isPresent()) {
+    Island island = claim.getWorldUniqueId().equals(world.getUniqueId()) ? IslandManager.getByClaim(claim).orElse(null) : null;
+    if (island == null) {
       SkyClaimsTimings.CLAIM_HANDLER.abort();
       return;
     }
 
-    Island island = IslandManager.getByClaim(claim).get();
     if (island.isLocked() && !island.isMember(player) && !player.hasPermission(Permissions.BYPASS_LOCK)) {
       event.cancelled(true);
       event.setMessage(toComponent(Text.of(PREFIX, TextColors.RED, "You do not have permission to enter ", island.getName(), TextColors.RED, "!")));
@@ -229,19 +234,15 @@ public class ClaimEventHandler {
 
     // Get The top level claim
     if (claim.isSubdivision()) {
-      Claim parent = claim;
-      while (parent.getParent().isPresent()) {
-        parent = parent.getParent().get();
-      }
-      claim = parent;
+      claim = getTopLevelClaim(claim);
     }
     // Ignore claims without an island.
-    if (!IslandManager.getByClaim(claim).isPresent()) {
+    Island island = IslandManager.getByClaim(claim).orElse(null);
+    if (island == null) {
       SkyClaimsTimings.CLAIM_HANDLER.abort();
       return;
     }
     // Send out invites
-    Island island = IslandManager.getByClaim(claim).get();
     for (PrivilegeType type : PrivilegeType.values()) {
       if (type.getTrustType() == event.getTrustType()) {
         event.cancelled(true);
@@ -273,6 +274,28 @@ public class ClaimEventHandler {
     SkyClaimsTimings.CLAIM_HANDLER.stopTimingIfSync();
   }
 
+  @Subscribe
+  public void onClaimTrustChanged(UserTrustClaimEvent event) {
+    World world = PLUGIN.getConfig().getWorldConfig().getWorld();
+    // Trust changes made by SkyClaims update the member index directly
+    if (!event.getClaim().getWorldUniqueId().equals(world.getUniqueId()) || isIslandDefender(event)) {
+      return;
+    }
+
+    // Trusts are applied after the event is posted, so re-index on the next tick
+    IslandManager.getByClaim(getTopLevelClaim(event.getClaim())).ifPresent(island -> Sponge.getScheduler().createTaskBuilder()
+        .execute(() -> IslandManager.updateMembers(island))
+        .submit(PLUGIN));
+  }
+
+  private Claim getTopLevelClaim(Claim claim) {
+    Claim parent = claim;
+    while (parent.getParent().isPresent()) {
+      parent = parent.getParent().get();
+    }
+    return parent;
+  }
+
   private Component toComponent(Text text) {
     return GsonComponentSerializer.INSTANCE.deserialize(TextSerializers.JSON.serialize(text));
   }
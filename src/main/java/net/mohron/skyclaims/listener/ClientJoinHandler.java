@@ -19,12 +19,14 @@
 package net.mohron.skyclaims.listener;
 
 import java.util.List;
+import java.util.Optional;
 import net.mohron.skyclaims.SkyClaims;
 import net.mohron.skyclaims.SkyClaimsTimings;
-import net.mohron.skyclaims.exception.CreateIslandException;
 import net.mohron.skyclaims.permissions.Options;
+import net.mohron.skyclaims.schematic.IslandSchematic;
 import net.mohron.skyclaims.team.PrivilegeType;
 import net.mohron.skyclaims.world.Island;
+import net.mohron.skyclaims.world.IslandCreationQueue;
 import net.mohron.skyclaims.world.IslandManager;
 import org.spongepowered.api.Sponge;
 import org.spongepowered.api.entity.living.player.Player;
@@ -53,17 +55,18 @@ public class ClientJoinHandler {
 
     Sponge.getScheduler().createTaskBuilder()
         .execute(src -> {
-          try {
-            new Island(
-                player,
-                Options.getDefaultSchematic(player.getUniqueId())
-                    .orElseThrow(() -> new CreateIslandException(Text.of(TextColors.RED, "Unable to load default schematic!")))
-            );
-            PLUGIN.getLogger().info("Automatically created an island for {}.", player.getName());
-          } catch (CreateIslandException e) {
+          // Created while the player was away or already queued by an earlier join
+          if (IslandManager.hasIsland(player.getUniqueId())) {
+            return;
+          }
+          Optional<IslandSchematic> schematic = Options.getDefaultSchematic(player.getUniqueId());
+          if (!schematic.isPresent()) {
             // Oh well, we tried!
-            PLUGIN.getLogger().warn(String.format("Failed to create an island on join for %s.", player.getName()), e);
+            PLUGIN.getLogger().warn("Failed to create an island on join for {}: Unable to load default schematic!", player.getName());
+            return;
           }
+          IslandCreationQueue.getInstance().submit(player, schematic.get())
+              .thenRun(() -> PLUGIN.getLogger().info("Automatically created an island for {}.", player.getName()));
         })
         .delayTicks(40)
         .submit(PLUGIN);
@@ -49,8 +49,8 @@ public class EntitySpawnHandler {
     }
 
     event.filterEntities(entity -> {
-      Island island = IslandManager.ISLANDS.values().stream()
-          .filter(i -> i.contains(entity.getLocation())).findAny().orElse(null);
+      Island island = IslandManager.getByLocation(entity.getLocation())
+          .filter(i -> i.contains(entity.getLocation())).orElse(null);
       if (island == null) {
         return true;
       }
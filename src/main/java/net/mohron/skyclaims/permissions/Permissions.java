@@ -77,6 +77,8 @@ public class Permissions {
   public static final String COMMAND_TRANSFER = "skyclaims.admin.transfer";
   public static final String COMMAND_VERSION = "skyclaims.admin.version";
   public static final String COMMAND_PLAYER_INFO = "skyclaims.admin.playerinfo";
+  public static final String COMMAND_REGION_BENCHMARK = "skyclaims.admin.benchmark.region";
+  public static final String COMMAND_STATS = "skyclaims.admin.stats";
   // Schematics
   public static final String COMMAND_SCHEMATIC = "skyclaims.admin.schematic.base";
   public static final String COMMAND_SCHEMATIC_COMMAND = "skyclaims.admin.schematic.command";
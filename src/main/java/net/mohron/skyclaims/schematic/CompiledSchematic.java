@@ -0,0 +1,148 @@
+/*
+ * SkyClaims - A Skyblock plugin made for Sponge
+ * Copyright (C) 2017 Mohron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SkyClaims is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SkyClaims.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.mohron.skyclaims.schematic;
+
+import com.flowpowered.math.vector.Vector3d;
+import com.flowpowered.math.vector.Vector3i;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.spongepowered.api.block.BlockState;
+import org.spongepowered.api.block.tileentity.TileEntityArchetype;
+import org.spongepowered.api.entity.EntityArchetype;
+import org.spongepowered.api.world.extent.ArchetypeVolume;
+
+/**
+ * The blocks of a schematic compiled for pasting, each kept as a packed position and an index into the schematic's
+ * palette. Air is kept too, so a paste replaces everything within the schematic's bounding box just as applying the
+ * schematic's volume does.
+ */
+public final class CompiledSchematic {
+
+  private final Vector3i min;
+  private final Vector3i size;
+  private final BlockState[] palette;
+  // Positions of the blocks, packed as ((y * size.z) + z) * size.x + x relative to min
+  private final int[] positions;
+  private final short[] blocks;
+  private final Map<Vector3i, TileEntityArchetype> tileEntities;
+  private final ListMultimap<Vector3d, EntityArchetype> entities;
+
+  private CompiledSchematic(Vector3i min, Vector3i size, BlockState[] palette, int[] positions, short[] blocks,
+      Map<Vector3i, TileEntityArchetype> tileEntities, ListMultimap<Vector3d, EntityArchetype> entities) {
+    this.min = min;
+    this.size = size;
+    this.palette = palette;
+    this.positions = positions;
+    this.blocks = blocks;
+    this.tileEntities = tileEntities;
+    this.entities = entities;
+  }
+
+  public static CompiledSchematic compile(ArchetypeVolume volume) {
+    Vector3i min = volume.getBlockMin();
+    Vector3i size = volume.getBlockSize();
+    Map<BlockState, Short> indexes = Maps.newHashMap();
+    List<BlockState> palette = Lists.newArrayList();
+    int[] positions = new int[16];
+    short[] blocks = new short[16];
+    int count = 0;
+
+    int position = 0;
+    for (int y = 0; y < size.getY(); y++) {
+      for (int z = 0; z < size.getZ(); z++) {
+        for (int x = 0; x < size.getX(); x++, position++) {
+          BlockState state = volume.getBlock(min.getX() + x, min.getY() + y, min.getZ() + z);
+          Short index = indexes.get(state);
+          if (index == null) {
+            if (palette.size() > Short.MAX_VALUE) {
+              throw new IllegalArgumentException("Schematic has too many unique blocks.");
+            }
+            index = (short) palette.size();
+            indexes.put(state, index);
+            palette.add(state);
+          }
+          if (count == positions.length) {
+            positions = Arrays.copyOf(positions, count * 2);
+            blocks = Arrays.copyOf(blocks, count * 2);
+          }
+          positions[count] = position;
+          blocks[count] = index;
+          count++;
+        }
+      }
+    }
+
+    return new CompiledSchematic(
+        min,
+        size,
+        palette.toArray(new BlockState[0]),
+        Arrays.copyOf(positions, count),
+        Arrays.copyOf(blocks, count),
+        ImmutableMap.copyOf(volume.getTileEntityArchetypes()),
+        ImmutableListMultimap.copyOf(volume.getEntitiesByPosition())
+    );
+  }
+
+  /**
+   * @return The lowest block position of the schematic, relative to its origin
+   */
+  public Vector3i getBlockMin() {
+    return min;
+  }
+
+  public Vector3i getBlockSize() {
+    return size;
+  }
+
+  /**
+   * @return The number of blocks, including air
+   */
+  public int getBlockCount() {
+    return positions.length;
+  }
+
+  /**
+   * @return The position relative to the schematic's origin of the block at the index
+   */
+  public Vector3i getPosition(int index) {
+    int position = positions[index];
+    int x = position % size.getX();
+    int z = position / size.getX() % size.getZ();
+    int y = position / size.getX() / size.getZ();
+    return min.add(x, y, z);
+  }
+
+  public BlockState getBlock(int index) {
+    return palette[blocks[index]];
+  }
+
+  public Map<Vector3i, TileEntityArchetype> getTileEntities() {
+    return tileEntities;
+  }
+
+  public ListMultimap<Vector3d, EntityArchetype> getEntities() {
+    return entities;
+  }
+}
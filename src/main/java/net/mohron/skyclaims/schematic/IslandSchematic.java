@@ -29,14 +29,15 @@ import java.util.stream.Collectors;
 import net.mohron.skyclaims.SkyClaims;
 import org.spongepowered.api.Sponge;
 import org.spongepowered.api.data.DataQuery;
+import org.spongepowered.api.data.DataView;
 import org.spongepowered.api.data.key.Keys;
 import org.spongepowered.api.item.ItemType;
 import org.spongepowered.api.item.ItemTypes;
 import org.spongepowered.api.item.inventory.ItemStack;
+import org.spongepowered.api.item.inventory.ItemStackSnapshot;
 import org.spongepowered.api.text.Text;
 import org.spongepowered.api.text.serializer.TextSerializers;
 import org.spongepowered.api.world.biome.BiomeType;
-import org.spongepowered.api.world.schematic.Schematic;
 
 public class IslandSchematic {
 
@@ -48,16 +49,28 @@ public class IslandSchematic {
   private static final DataQuery DESCRIPTION = DataQuery.of("SkyClaims", "Description");
   private static final DataQuery PRESET = DataQuery.of("SkyClaims", "Preset");
 
-  private final Schematic schematic;
   private final String name;
+  private final DataView metadata;
+  // Rendered on first use and cleared whenever the metadata changes
+  private volatile ItemStackSnapshot itemStack;
 
-  public IslandSchematic(Schematic schematic, String name) {
-    this.schematic = schematic;
+  public IslandSchematic(String name, DataView metadata) {
     this.name = name;
+    this.metadata = metadata;
   }
 
-  public Schematic getSchematic() {
-    return schematic;
+  /**
+   * @return The schematic's metadata, which is kept in memory while its blocks are loaded on demand
+   */
+  public DataView getMetadata() {
+    return metadata;
+  }
+
+  /**
+   * Gets the schematic's blocks, decoding the schematic file if they are not already cached.
+   */
+  public CompiledSchematic getCompiled() {
+    return SkyClaims.getInstance().getSchematicManager().getCompiled(this);
   }
 
   public String getName() {
@@ -69,13 +82,13 @@ public class IslandSchematic {
   }
 
   public String getAuthor() {
-    return schematic.getMetadata().getString(DataQuery.of("Author")).orElse("Unknown");
+    return metadata.getString(DataQuery.of("Author")).orElse("Unknown");
   }
 
   public String getDate() {
     String date = "Unknown";
     try {
-      Instant instant = Instant.parse(schematic.getMetadata().getString(DataQuery.of("Date")).orElse("Unknown"));
+      Instant instant = Instant.parse(metadata.getString(DataQuery.of("Date")).orElse("Unknown"));
       date = SkyClaims.getInstance().getConfig().getMiscConfig().getDateFormat().format(Date.from(instant));
     } catch (Exception ignored) {
     }
@@ -83,7 +96,7 @@ public class IslandSchematic {
   }
 
   public Optional<BiomeType> getBiomeType() {
-    String biomeId = schematic.getMetadata().getString(BIOME_TYPE).orElse(null);
+    String biomeId = metadata.getString(BIOME_TYPE).orElse(null);
     return biomeId != null ?
         Sponge.getRegistry().getAllOf(BiomeType.class).stream().filter(b -> b.getId().equalsIgnoreCase(biomeId)).findAny() :
         Optional.empty();
@@ -94,7 +107,7 @@ public class IslandSchematic {
   }
 
   public List<String> getCommands() {
-    return schematic.getMetadata().getStringList(COMMANDS).orElse(Lists.newArrayList());
+    return metadata.getStringList(COMMANDS).orElse(Lists.newArrayList());
   }
 
   public void setCommands(List<String> commands) {
@@ -103,8 +116,8 @@ public class IslandSchematic {
 
   public Optional<Integer> getHeight(){
     Integer height;
-    if (schematic.getMetadata().getInt(HEIGHT).isPresent()) {
-      height = Math.max(0, Math.min(255, schematic.getMetadata().getInt(HEIGHT).get()));
+    if (metadata.getInt(HEIGHT).isPresent()) {
+      height = Math.max(0, Math.min(255, metadata.getInt(HEIGHT).get()));
     } else {
       height = null;
     }
@@ -116,7 +129,7 @@ public class IslandSchematic {
   }
 
   public Text getText() {
-    String rawText = schematic.getMetadata().getString(TEXT).orElse(getName());
+    String rawText = metadata.getString(TEXT).orElse(getName());
     return TextSerializers.FORMATTING_CODE.deserialize(rawText);
   }
 
@@ -125,7 +138,7 @@ public class IslandSchematic {
   }
 
   public String getDescription() {
-    return schematic.getMetadata().getString(DESCRIPTION).orElse("");
+    return metadata.getString(DESCRIPTION).orElse("");
   }
 
   public Text getDescriptionText() {
@@ -146,7 +159,7 @@ public class IslandSchematic {
   }
 
   public Optional<ItemType> getIcon() {
-    String type = schematic.getMetadata().getString(ICON).orElse("");
+    String type = metadata.getString(ICON).orElse("");
     return Sponge.getRegistry().getType(ItemType.class, type);
   }
 
@@ -159,26 +172,33 @@ public class IslandSchematic {
   }
 
   public Optional<String> getPreset() {
-    return schematic.getMetadata().getString(PRESET);
+    return metadata.getString(PRESET);
   }
 
   public ItemStack getItemStackRepresentation() {
-    List<Text> lore = Arrays.stream(this.getDescription().split("\n"))
-        .map(TextSerializers.FORMATTING_CODE::deserialize)
-        .collect(Collectors.toList());
-    return ItemStack.builder()
-        .itemType(this.getIcon().orElse(ItemTypes.GOLDEN_SHOVEL))
-        .add(Keys.DISPLAY_NAME, this.getText())
-        .add(Keys.ITEM_LORE, lore)
-        .quantity(1)
-        .build();
+    ItemStackSnapshot snapshot = itemStack;
+    if (snapshot == null) {
+      List<Text> lore = Arrays.stream(this.getDescription().split("\n"))
+          .map(TextSerializers.FORMATTING_CODE::deserialize)
+          .collect(Collectors.toList());
+      snapshot = ItemStack.builder()
+          .itemType(this.getIcon().orElse(ItemTypes.GOLDEN_SHOVEL))
+          .add(Keys.DISPLAY_NAME, this.getText())
+          .add(Keys.ITEM_LORE, lore)
+          .quantity(1)
+          .build()
+          .createSnapshot();
+      itemStack = snapshot;
+    }
+    return snapshot.createStack();
   }
 
   private void setMetadata(DataQuery path, Object value) {
     if (value != null) {
-      schematic.getMetadata().set(path, value);
+      metadata.set(path, value);
     } else {
-      schematic.getMetadata().remove(path);
+      metadata.remove(path);
     }
+    itemStack = null;
   }
 }
@@ -18,25 +18,45 @@
 
 package net.mohron.skyclaims.schematic;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
+import javax.annotation.Nullable;
 import net.mohron.skyclaims.SkyClaims;
 import org.spongepowered.api.Sponge;
 import org.spongepowered.api.data.DataContainer;
 import org.spongepowered.api.data.DataQuery;
+import org.spongepowered.api.data.DataView;
 import org.spongepowered.api.data.persistence.DataFormats;
 import org.spongepowered.api.data.persistence.DataTranslators;
 import org.spongepowered.api.world.schematic.Schematic;
@@ -44,17 +64,36 @@ import org.spongepowered.api.world.schematic.Schematic;
 public class SchematicManager {
 
   private static final String SCHEMATIC_FILE_EXT = ".schematic";
+  private static final DataQuery METADATA = DataQuery.of("Metadata");
+  // Schematics whose blocks are kept decoded in memory
+  private static final int COMPILED_CACHE_SIZE = 8;
+  private static final int LOAD_PARALLELISM = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
 
   private final SkyClaims plugin;
   private final Random random;
-  private final List<IslandSchematic> schematics;
   private final File directory;
+  private final LoadingCache<String, CompiledSchematic> compiled;
+  // Replaced as a whole whenever schematics change, so readers always see a complete list
+  private volatile List<IslandSchematic> schematics;
+  // Schematics are written one at a time, in the order they were saved
+  private final ExecutorService io = Executors.newSingleThreadExecutor(
+      new ThreadFactoryBuilder().setNameFormat("SkyClaims Schematic Writer").setDaemon(true).build()
+  );
+  private SchematicWatcher watcher;
 
   public SchematicManager(SkyClaims plugin) {
     this.plugin = plugin;
     this.random = new Random();
-    this.schematics = Lists.newArrayList();
+    this.schematics = ImmutableList.of();
     this.directory = new File(plugin.getConfigDir() + File.separator + "schematics");
+    this.compiled = CacheBuilder.newBuilder()
+        .maximumSize(COMPILED_CACHE_SIZE)
+        .build(new CacheLoader<String, CompiledSchematic>() {
+          @Override
+          public CompiledSchematic load(String name) throws Exception {
+            return decode(name);
+          }
+        });
   }
 
   public List<IslandSchematic> getSchematics() {
@@ -62,28 +101,49 @@ public class SchematicManager {
   }
 
   public IslandSchematic getRandomSchematic() {
+    List<IslandSchematic> schematics = this.schematics;
     int r = random.nextInt(schematics.size());
     return schematics.get(r);
   }
 
-  public boolean create(Schematic schematic, String name) {
-    try {
-      DataContainer schematicData = DataTranslators.SCHEMATIC.translate(schematic);
-      DataFormats.NBT.writeTo(new GZIPOutputStream(new FileOutputStream(
-          new File(directory, String.format("%s.schematic", name))
-      )), schematicData);
-      plugin.getSchematicManager().getSchematics().add(new IslandSchematic(schematic, name));
-      return true;
-    } catch (Exception e) {
-      plugin.getLogger().error("Error saving schematic: {}\n{}", name, e.getStackTrace());
-      return false;
-    }
+  /**
+   * Gets the blocks of a schematic, decoding its file if they are not cached. Only the most recently used schematics
+   * are kept decoded.
+   */
+  public CompiledSchematic getCompiled(IslandSchematic schematic) {
+    return compiled.getUnchecked(schematic.getName());
+  }
+
+  /**
+   * Saves a new schematic. The schematic is translated, compressed and written on a background thread, and the returned
+   * future is completed on the main thread.
+   *
+   * @return a future completed with true if the schematic was saved
+   */
+  public CompletableFuture<Boolean> create(Schematic schematic, String name) {
+    return onMainThread(CompletableFuture.supplyAsync(() -> {
+      try {
+        write(new File(directory, String.format("%s.schematic", name)), DataTranslators.SCHEMATIC.translate(schematic));
+        compiled.put(name, CompiledSchematic.compile(schematic));
+        IslandSchematic islandSchematic = new IslandSchematic(name, schematic.getMetadata().copy());
+        synchronized (this) {
+          schematics = ImmutableList.<IslandSchematic>builder().addAll(schematics).add(islandSchematic).build();
+        }
+        return true;
+      } catch (Exception e) {
+        plugin.getLogger().error("Error saving schematic: " + name, e);
+        return false;
+      }
+    }, io));
   }
 
   public boolean delete(IslandSchematic schematic) {
     try {
       Files.delete(Paths.get(directory.getPath(), schematic.getFileName()));
-      schematics.remove(schematic);
+      synchronized (this) {
+        schematics = ImmutableList.copyOf(schematics.stream().filter(s -> s != schematic).collect(Collectors.toList()));
+      }
+      compiled.invalidate(schematic.getName());
       return true;
     } catch (Exception e) {
       plugin.getLogger().error("Error deleting schematic: {}\n{}", schematic.getName(), e.getStackTrace());
@@ -91,50 +151,167 @@ public class SchematicManager {
     }
   }
 
-  public void load() {
+  /**
+   * Loads the metadata of every schematic in parallel. Their blocks are decoded the first time they are needed.
+   */
+  public synchronized void load() {
     plugin.getLogger().debug("Started loading schematics.");
-    schematics.clear();
     unpackDefaultSchematics();
+    List<IslandSchematic> loaded = Lists.newArrayList();
+    ForkJoinPool pool = new ForkJoinPool(LOAD_PARALLELISM);
     try {
+      List<ForkJoinTask<IslandSchematic>> tasks = Lists.newArrayList();
       //noinspection ConstantConditions - exception will be caught
       for (File file : directory.listFiles()) {
-        final String fileName = file.getName();
-        if (fileName.endsWith(SCHEMATIC_FILE_EXT)) {
-          try {
-            DataContainer schematicData = DataFormats.NBT.readFrom(new GZIPInputStream(new FileInputStream(file)));
-            List<String> missingMods = getMissingMods(schematicData);
-            if (missingMods.isEmpty()) {
-              Schematic schematic = DataTranslators.SCHEMATIC.translate(schematicData);
-              schematics.add(new IslandSchematic(schematic, fileName.replace(SCHEMATIC_FILE_EXT, "").toLowerCase()));
-            } else {
-              plugin.getLogger().warn("Schematic \"{}\" is missing required mods: {}", fileName, missingMods);
-            }
-          } catch (Exception e) {
-            plugin.getLogger().error("Error loading schematic: " + fileName, e);
-            continue;
-          }
-          plugin.getLogger().debug("Successfully loaded schematic: {}.", fileName);
-        } else {
-          plugin.getLogger().debug("Found non-schematic file {}. Ignoring.", fileName);
+        tasks.add(pool.submit(() -> load(file)));
+      }
+      for (ForkJoinTask<IslandSchematic> task : tasks) {
+        IslandSchematic schematic = task.join();
+        if (schematic != null) {
+          loaded.add(schematic);
         }
       }
     } catch (Exception e) {
       plugin.getLogger().error("Failed to read schematics directory!", e);
+    } finally {
+      pool.shutdown();
     }
+    compiled.invalidateAll();
+    schematics = ImmutableList.copyOf(loaded);
     plugin.getLogger().debug("Finished loading {} schematics.", schematics.size());
   }
 
-  public boolean save(IslandSchematic schematic) {
+  /**
+   * Reloads only the named schematic files, adding, replacing or removing their schematics.
+   */
+  synchronized void reload(Collection<String> fileNames) {
+    Map<String, IslandSchematic> updated = Maps.newLinkedHashMap();
+    schematics.forEach(s -> updated.put(s.getName(), s));
+    for (String fileName : fileNames) {
+      if (!fileName.endsWith(SCHEMATIC_FILE_EXT)) {
+        continue;
+      }
+      String name = fileName.replace(SCHEMATIC_FILE_EXT, "").toLowerCase();
+      File file = new File(directory, fileName);
+      IslandSchematic schematic = file.exists() ? load(file) : null;
+      if (schematic != null) {
+        updated.put(name, schematic);
+        plugin.getLogger().info("Loaded changes to schematic {}.", name);
+      } else if (updated.remove(name) != null) {
+        plugin.getLogger().info("Removed schematic {}.", name);
+      }
+      compiled.invalidate(name);
+    }
+    schematics = ImmutableList.copyOf(updated.values());
+  }
+
+  /**
+   * Starts reloading schematics as their files change.
+   */
+  public void startWatching() {
+    stopWatching();
+    try {
+      watcher = new SchematicWatcher(this, directory.toPath());
+      watcher.start();
+    } catch (IOException e) {
+      plugin.getLogger().error("Unable to watch the schematics directory for changes.", e);
+    }
+  }
+
+  public void stopWatching() {
+    if (watcher != null) {
+      watcher.stop();
+      watcher = null;
+    }
+  }
+
+  @Nullable
+  private IslandSchematic load(File file) {
+    final String fileName = file.getName();
+    if (!fileName.endsWith(SCHEMATIC_FILE_EXT)) {
+      plugin.getLogger().debug("Found non-schematic file {}. Ignoring.", fileName);
+      return null;
+    }
     try {
-      DataContainer schematicData = DataTranslators.SCHEMATIC.translate(schematic.getSchematic());
-      DataFormats.NBT.writeTo(new GZIPOutputStream(new FileOutputStream(
-          new File(directory, schematic.getFileName())
-      )), schematicData);
+      DataContainer schematicData = read(file);
+      List<String> missingMods = getMissingMods(schematicData);
+      if (!missingMods.isEmpty()) {
+        plugin.getLogger().warn("Schematic \"{}\" is missing required mods: {}", fileName, missingMods);
+        return null;
+      }
+      DataView metadata = schematicData.getView(METADATA).map(DataView::copy).orElseGet(DataContainer::createNew);
+      plugin.getLogger().debug("Successfully loaded schematic: {}.", fileName);
+      return new IslandSchematic(fileName.replace(SCHEMATIC_FILE_EXT, "").toLowerCase(), metadata);
     } catch (Exception e) {
-      plugin.getLogger().error("Error saving schematic: " + schematic.getName(), e);
-      return false;
+      plugin.getLogger().error("Error loading schematic: " + fileName, e);
+      return null;
+    }
+  }
+
+  private CompiledSchematic decode(String name) throws IOException {
+    long start = System.nanoTime();
+    Schematic schematic = DataTranslators.SCHEMATIC.translate(read(new File(directory, name + SCHEMATIC_FILE_EXT)));
+    CompiledSchematic compiledSchematic = CompiledSchematic.compile(schematic);
+    plugin.getLogger().debug("Decoded schematic {} in {} ms.", name, (System.nanoTime() - start) / 1_000_000);
+    return compiledSchematic;
+  }
+
+  /**
+   * Writes the schematic's metadata to its file on a background thread. The blocks are copied from the existing file
+   * without being decoded.
+   *
+   * @return a future completed on the main thread with true if the schematic was saved
+   */
+  public CompletableFuture<Boolean> save(IslandSchematic schematic) {
+    DataView metadata = schematic.getMetadata().copy();
+    return onMainThread(CompletableFuture.supplyAsync(() -> {
+      try {
+        File file = new File(directory, schematic.getFileName());
+        DataContainer schematicData = read(file);
+        schematicData.set(METADATA, metadata);
+        write(file, schematicData);
+        return true;
+      } catch (Exception e) {
+        plugin.getLogger().error("Error saving schematic: " + schematic.getName(), e);
+        return false;
+      }
+    }, io));
+  }
+
+  /**
+   * Stops watching for changes and waits for pending schematic writes to finish.
+   */
+  public void close() {
+    stopWatching();
+    io.shutdown();
+    try {
+      if (!io.awaitTermination(30, TimeUnit.SECONDS)) {
+        plugin.getLogger().warn("Timed out waiting for schematics to be saved.");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private <T> CompletableFuture<T> onMainThread(CompletableFuture<T> future) {
+    return future.thenApplyAsync(Function.identity(), Sponge.getScheduler().createSyncExecutor(plugin));
+  }
+
+  private static DataContainer read(File file) throws IOException {
+    try (InputStream in = new GZIPInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      return DataFormats.NBT.readFrom(in);
+    }
+  }
+
+  /**
+   * Writes the schematic to a temporary file and moves it into place, so a partly written schematic is never loaded.
+   */
+  private static void write(File file, DataContainer data) throws IOException {
+    Path temp = file.toPath().resolveSibling(file.getName() + ".tmp");
+    try (OutputStream out = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+      DataFormats.NBT.writeTo(out, data);
     }
-    return true;
+    Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
   }
 
   private void unpackDefaultSchematics() {
@@ -1,21 +1,24 @@
 package net.mohron.skyclaims.schematic;
 
+import com.google.common.collect.ImmutableList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import net.mohron.skyclaims.SkyClaims;
 import org.spongepowered.api.command.CommandSource;
-import org.spongepowered.api.data.key.Keys;
 import org.spongepowered.api.entity.living.player.Player;
 import org.spongepowered.api.event.item.inventory.ClickInventoryEvent;
 import org.spongepowered.api.item.inventory.Inventory;
 import org.spongepowered.api.item.inventory.InventoryArchetypes;
-import org.spongepowered.api.item.inventory.ItemStackSnapshot;
+import org.spongepowered.api.item.inventory.Slot;
 import org.spongepowered.api.item.inventory.property.InventoryDimension;
 import org.spongepowered.api.item.inventory.property.InventoryTitle;
+import org.spongepowered.api.item.inventory.property.SlotIndex;
 import org.spongepowered.api.item.inventory.property.SlotPos;
 import org.spongepowered.api.item.inventory.query.QueryOperationTypes;
+import org.spongepowered.api.item.inventory.transaction.SlotTransaction;
 import org.spongepowered.api.text.Text;
 import org.spongepowered.api.text.format.TextColors;
 
@@ -27,15 +30,19 @@ public final class SchematicUI {
   }
 
   public static Inventory of(List<IslandSchematic> schematics, Function<IslandSchematic, Consumer<CommandSource>> mapper) {
+    // Schematics by slot index
+    List<IslandSchematic> slots = ImmutableList.copyOf(schematics);
+    AtomicReference<Inventory> reference = new AtomicReference<>();
     Inventory inventory = Inventory.builder()
         .of(InventoryArchetypes.CHEST)
         .property(InventoryTitle.PROPERTY_NAME, InventoryTitle.of(Text.of(TextColors.AQUA, "Schematics")))
-        .property(InventoryDimension.PROPERTY_NAME, InventoryDimension.of(9, schematics.size() / 9 + 1))
-        .listener(ClickInventoryEvent.class, handleClick(mapper))
+        .property(InventoryDimension.PROPERTY_NAME, InventoryDimension.of(9, slots.size() / 9 + 1))
+        .listener(ClickInventoryEvent.class, handleClick(reference, slots, mapper))
         .build(PLUGIN);
+    reference.set(inventory);
 
-    for (int i = 0; i < schematics.size(); i++) {
-      IslandSchematic schematic = schematics.get(i);
+    for (int i = 0; i < slots.size(); i++) {
+      IslandSchematic schematic = slots.get(i);
       inventory.query(QueryOperationTypes.INVENTORY_PROPERTY.of(SlotPos.of(i % 9, i / 9)))
           .first()
           .set(schematic.getItemStackRepresentation());
@@ -44,11 +51,12 @@ public final class SchematicUI {
     return inventory;
   }
 
-  private static Consumer<ClickInventoryEvent> handleClick(Function<IslandSchematic, Consumer<CommandSource>> mapper) {
+  private static Consumer<ClickInventoryEvent> handleClick(AtomicReference<Inventory> inventory, List<IslandSchematic> slots,
+      Function<IslandSchematic, Consumer<CommandSource>> mapper) {
     return event -> {
       if (event.getCause().first(Player.class).isPresent()) {
         Player player = event.getCause().first(Player.class).get();
-        getSchematic(event).ifPresent(s -> {
+        getSchematic(event, inventory.get(), slots).ifPresent(s -> {
           mapper.apply(s).accept(player);
           player.closeInventory();
         });
@@ -57,14 +65,16 @@ public final class SchematicUI {
     };
   }
 
-  private static Optional<IslandSchematic> getSchematic(ClickInventoryEvent event) {
-    if (event.getCursorTransaction().isValid()) {
-      ItemStackSnapshot itemStack = event.getCursorTransaction().getFinal();
-      if (itemStack.get(Keys.DISPLAY_NAME).isPresent()) {
-        Text name = itemStack.get(Keys.DISPLAY_NAME).get();
-        return PLUGIN.getSchematicManager().getSchematics().stream()
-            .filter(s -> s.getText().equals(name))
-            .findAny();
+  private static Optional<IslandSchematic> getSchematic(ClickInventoryEvent event, Inventory inventory, List<IslandSchematic> slots) {
+    for (SlotTransaction transaction : event.getTransactions()) {
+      Slot slot = transaction.getSlot().transform();
+      // Ignore clicks in the player's own inventory
+      if (inventory == null || !inventory.containsInventory(slot)) {
+        continue;
+      }
+      Optional<Integer> index = slot.getInventoryProperty(SlotIndex.class).map(SlotIndex::getValue);
+      if (index.isPresent() && index.get() >= 0 && index.get() < slots.size()) {
+        return Optional.of(slots.get(index.get()));
       }
     }
     return Optional.empty();
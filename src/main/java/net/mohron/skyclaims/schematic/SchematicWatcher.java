@@ -0,0 +1,97 @@
+/*
+ * SkyClaims - A Skyblock plugin made for Sponge
+ * Copyright (C) 2017 Mohron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SkyClaims is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SkyClaims.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.mohron.skyclaims.schematic;
+
+import com.google.common.collect.Sets;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import net.mohron.skyclaims.SkyClaims;
+
+/**
+ * Watches the schematics directory and reloads only the schematic files that were added, changed or removed. Changes
+ * are collected until the directory has been quiet for a moment, so files still being copied are read once complete.
+ */
+final class SchematicWatcher implements Runnable {
+
+  private static final SkyClaims PLUGIN = SkyClaims.getInstance();
+  private static final long QUIET_MILLIS = 1000;
+
+  private final SchematicManager manager;
+  private final WatchService watchService;
+  private final Thread thread;
+
+  SchematicWatcher(SchematicManager manager, Path directory) throws IOException {
+    this.manager = manager;
+    this.watchService = FileSystems.getDefault().newWatchService();
+    directory.register(watchService,
+        StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+    this.thread = new Thread(this, "SkyClaims Schematic Watcher");
+    this.thread.setDaemon(true);
+  }
+
+  void start() {
+    thread.start();
+  }
+
+  void stop() {
+    try {
+      watchService.close();
+    } catch (IOException e) {
+      PLUGIN.getLogger().error("Failed to stop watching the schematics directory.", e);
+    }
+  }
+
+  @Override
+  public void run() {
+    Set<String> changed = Sets.newHashSet();
+    try {
+      while (true) {
+        WatchKey key = changed.isEmpty() ? watchService.take() : watchService.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS);
+        if (key == null) {
+          manager.reload(changed);
+          changed.clear();
+          continue;
+        }
+        for (WatchEvent<?> event : key.pollEvents()) {
+          if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            PLUGIN.getLogger().warn("Missed changes to the schematics directory; use /reload to load every schematic.");
+          } else {
+            changed.add(((Path) event.context()).getFileName().toString());
+          }
+        }
+        if (!key.reset()) {
+          PLUGIN.getLogger().warn("The schematics directory is no longer accessible; schematic changes will not be loaded.");
+          return;
+        }
+      }
+    } catch (ClosedWatchServiceException | InterruptedException ignored) {
+      // Stopped
+    } catch (RuntimeException e) {
+      PLUGIN.getLogger().error("Stopped watching the schematics directory.", e);
+    }
+  }
+}
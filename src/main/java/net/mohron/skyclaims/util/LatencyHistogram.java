@@ -0,0 +1,78 @@
+/*
+ * SkyClaims - A Skyblock plugin made for Sponge
+ * Copyright (C) 2017 Mohron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SkyClaims is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SkyClaims.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.mohron.skyclaims.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A histogram of latencies in power of two millisecond buckets.
+ */
+public final class LatencyHistogram {
+
+  // [0, 1ms), [1ms, 2ms), [2ms, 4ms) ... [32768ms and above)
+  private static final int BUCKETS = 17;
+
+  private final long[] buckets = new long[BUCKETS];
+  private long count;
+  private long totalNanos;
+  private long maxNanos;
+
+  public synchronized void record(long nanos) {
+    long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+    int bucket = millis == 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(millis));
+    buckets[bucket]++;
+    count++;
+    totalNanos += nanos;
+    maxNanos = Math.max(maxNanos, nanos);
+  }
+
+  public synchronized long getCount() {
+    return count;
+  }
+
+  public synchronized double getMeanMillis() {
+    return count == 0 ? 0 : totalNanos / (double) count / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  public synchronized double getMaxMillis() {
+    return maxNanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  /**
+   * @param percentile The percentile to find, between 0 and 1
+   * @return The upper bound in milliseconds of the bucket containing the percentile
+   */
+  public synchronized long getPercentileMillis(double percentile) {
+    long target = (long) Math.ceil(count * percentile);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += buckets[i];
+      if (seen >= target && seen > 0) {
+        return i == BUCKETS - 1 ? (long) Math.ceil(getMaxMillis()) : 1L << i;
+      }
+    }
+    return 0;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return String.format("n=%d mean=%.1fms p50<%dms p95<%dms max=%.1fms",
+        count, getMeanMillis(), getPercentileMillis(0.5), getPercentileMillis(0.95), getMaxMillis());
+  }
+}
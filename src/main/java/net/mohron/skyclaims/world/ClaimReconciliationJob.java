@@ -0,0 +1,312 @@
+/*
+ * SkyClaims - A Skyblock plugin made for Sponge
+ * Copyright (C) 2017 Mohron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SkyClaims is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SkyClaims.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.mohron.skyclaims.world;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.griefdefender.api.GriefDefender;
+import com.griefdefender.api.claim.Claim;
+import com.griefdefender.api.claim.ClaimTypes;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import net.mohron.skyclaims.SkyClaims;
+import net.mohron.skyclaims.SkyClaimsTimings;
+import org.spongepowered.api.Sponge;
+
+/**
+ * Periodically checks the claim of every island against GriefDefender, a few islands each tick. Islands are visited in
+ * order of their UUID, so a run interrupted by a reload resumes after the last island checked. Each run produces a
+ * {@link Report} of the claims that were repaired, the island claims that no island uses, and the islands whose claim
+ * conflicts with another. The job also reads the members of newly loaded islands from their claims into the member
+ * index, so loading islands makes no GriefDefender calls.
+ */
+public final class ClaimReconciliationJob implements Runnable {
+
+  public static final String TASK_NAME = "skyclaims.claim.reconcile";
+
+  public enum Outcome {
+    /**
+     * The claim was found and needed no changes.
+     */
+    VALID,
+    /**
+     * The claim was resized, changed to a town, found again under a new UUID or created again.
+     */
+    REPAIRED,
+    /**
+     * The claim is missing and the island's region is claimed by someone else, or the claim is used by another island.
+     */
+    CONFLICTING
+  }
+
+  private static final SkyClaims PLUGIN = SkyClaims.getInstance();
+  private static final ClaimReconciliationJob INSTANCE = new ClaimReconciliationJob();
+  private static final int ISLANDS_PER_TICK = 10;
+  private static final int MEMBERS_PER_TICK = 50;
+  private static final long INITIAL_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+  // Entries of each kind listed when a report is logged
+  private static final int REPORT_ENTRIES = 20;
+
+  private long nextRun = 0;
+  private Report current;
+  private Report last;
+  private UUID cursor;
+  private Iterator<UUID> pending;
+  private Map<UUID, UUID> claimedBy;
+  private final Deque<Island> unindexed = new ArrayDeque<>();
+
+  private ClaimReconciliationJob() {
+  }
+
+  public static ClaimReconciliationJob getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Schedules the repeating task that runs the job. A run that was in progress continues where it stopped.
+   */
+  public static void register() {
+    INSTANCE.pending = null;
+    if (INSTANCE.nextRun == 0) {
+      INSTANCE.nextRun = System.currentTimeMillis() + INITIAL_DELAY_MILLIS;
+    }
+    Sponge.getScheduler().createTaskBuilder()
+        .name(TASK_NAME)
+        .execute(INSTANCE)
+        .intervalTicks(1)
+        .submit(PLUGIN);
+  }
+
+  public boolean isRunning() {
+    return current != null;
+  }
+
+  /**
+   * @return The report of the run in progress, if any
+   */
+  @Nullable
+  public Report getCurrentReport() {
+    return current;
+  }
+
+  /**
+   * @return The report of the last completed run, if any
+   */
+  @Nullable
+  public Report getLastReport() {
+    return last;
+  }
+
+  /**
+   * Queues loaded islands to have their members read into the member index, replacing any islands still queued.
+   */
+  public void indexMembers(Collection<Island> islands) {
+    unindexed.clear();
+    unindexed.addAll(islands);
+  }
+
+  /**
+   * @return The loaded islands whose members have not yet been read into the member index
+   */
+  Collection<Island> getUnindexed() {
+    return Collections.unmodifiableCollection(unindexed);
+  }
+
+  @Override
+  public void run() {
+    boolean due = current != null || System.currentTimeMillis() >= nextRun;
+    if (!due && unindexed.isEmpty()) {
+      return;
+    }
+
+    SkyClaimsTimings.CLAIM_RECONCILIATION.startTimingIfSync();
+
+    for (int i = 0; i < MEMBERS_PER_TICK && !unindexed.isEmpty(); i++) {
+      IslandManager.updateMembers(unindexed.poll());
+    }
+    if (due) {
+      reconcile();
+    }
+
+    SkyClaimsTimings.CLAIM_RECONCILIATION.stopTimingIfSync();
+  }
+
+  private void reconcile() {
+    if (current == null) {
+      start();
+    }
+    if (pending == null) {
+      // Resume after the last island checked, as the islands may have been reloaded since
+      NavigableSet<UUID> ids = Sets.newTreeSet(IslandManager.ISLANDS.keySet());
+      pending = (cursor != null ? ids.tailSet(cursor, false) : ids).iterator();
+    }
+    for (int i = 0; i < ISLANDS_PER_TICK && pending.hasNext(); i++) {
+      cursor = pending.next();
+      Island island = IslandManager.ISLANDS.get(cursor);
+      if (island != null) {
+        reconcile(island);
+      }
+    }
+    if (!pending.hasNext()) {
+      finish();
+    }
+  }
+
+  private void start() {
+    PLUGIN.getLogger().info("Starting claim reconciliation of {} islands.", IslandManager.ISLANDS.size());
+    current = new Report(IslandManager.ISLANDS.size());
+    cursor = null;
+    pending = null;
+    claimedBy = Maps.newHashMap();
+  }
+
+  private void reconcile(Island island) {
+    current.checked++;
+    Outcome outcome;
+    UUID other = claimedBy.putIfAbsent(island.getClaimUniqueId(), island.getUniqueId());
+    if (other != null) {
+      outcome = Outcome.CONFLICTING;
+      PLUGIN.getLogger().warn("Claim {} of {} is also used by island {}.", island.getClaimUniqueId(), island.getUniqueId(), other);
+    } else {
+      try {
+        outcome = island.reconcileClaim();
+      } catch (RuntimeException e) {
+        PLUGIN.getLogger().error(String.format("Failed to reconcile the claim of island %s.", island.getUniqueId()), e);
+        return;
+      }
+      // The claim may have been found again or created under a new UUID
+      claimedBy.put(island.getClaimUniqueId(), island.getUniqueId());
+      IslandManager.updateMembers(island);
+    }
+    switch (outcome) {
+      case REPAIRED:
+        current.repaired.add(describe(island));
+        break;
+      case CONFLICTING:
+        current.conflicting.add(describe(island));
+        break;
+      default:
+        break;
+    }
+  }
+
+  private void finish() {
+    // Island claims left over once every island has been checked no longer belong to an island
+    GriefDefender.getCore().getClaimManager(PLUGIN.getConfig().getWorldConfig().getWorld().getUniqueId()).getWorldClaims().stream()
+        .filter(claim -> claim.getType() == ClaimTypes.TOWN && !claimedBy.containsKey(claim.getUniqueId()))
+        .filter(claim -> !IslandManager.getByClaim(claim).isPresent())
+        .forEach(claim -> current.orphaned.add(describe(claim)));
+
+    current.complete();
+    current.log();
+    last = current;
+    current = null;
+    cursor = null;
+    pending = null;
+    claimedBy = null;
+    nextRun = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(PLUGIN.getConfig().getMiscConfig().getClaimReconciliationInterval());
+  }
+
+  private static String describe(Island island) {
+    return String.format("%s (%s) at region (%d, %d)",
+        island.getUniqueId(), island.getOwnerUniqueId(), island.getRegion().getX(), island.getRegion().getZ());
+  }
+
+  private static String describe(Claim claim) {
+    return String.format("%s (%s) at %s", claim.getUniqueId(), claim.getOwnerUniqueId(), claim.getLesserBoundaryCorner());
+  }
+
+  public static final class Report {
+
+    private final int total;
+    private final Stopwatch stopwatch = Stopwatch.createStarted();
+    private final List<String> repaired = Lists.newArrayList();
+    private final List<String> orphaned = Lists.newArrayList();
+    private final List<String> conflicting = Lists.newArrayList();
+    private int checked = 0;
+
+    private Report(int total) {
+      this.total = total;
+    }
+
+    public int getTotal() {
+      return total;
+    }
+
+    public int getChecked() {
+      return checked;
+    }
+
+    /**
+     * @return The islands whose claim was repaired
+     */
+    public List<String> getRepaired() {
+      return ImmutableList.copyOf(repaired);
+    }
+
+    /**
+     * @return The island claims that no island uses
+     */
+    public List<String> getOrphaned() {
+      return ImmutableList.copyOf(orphaned);
+    }
+
+    /**
+     * @return The islands whose claim conflicts with another claim or island
+     */
+    public List<String> getConflicting() {
+      return ImmutableList.copyOf(conflicting);
+    }
+
+    public long getElapsedMillis() {
+      return stopwatch.elapsed(TimeUnit.MILLISECONDS);
+    }
+
+    private void complete() {
+      stopwatch.stop();
+    }
+
+    private void log() {
+      PLUGIN.getLogger().info("Finished claim reconciliation of {} islands in {}ms: {} repaired, {} orphaned claims, {} conflicting.",
+          checked, getElapsedMillis(), repaired.size(), orphaned.size(), conflicting.size());
+      log("Repaired", repaired);
+      log("Orphaned claim", orphaned);
+      log("Conflicting", conflicting);
+    }
+
+    private static void log(String kind, List<String> entries) {
+      entries.stream().limit(REPORT_ENTRIES).forEach(entry -> PLUGIN.getLogger().info(" - {}: {}", kind, entry));
+      if (entries.size() > REPORT_ENTRIES) {
+        PLUGIN.getLogger().info(" - {} more not shown.", entries.size() - REPORT_ENTRIES);
+      }
+    }
+  }
+}
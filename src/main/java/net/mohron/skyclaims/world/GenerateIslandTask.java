@@ -21,16 +21,17 @@ package net.mohron.skyclaims.world;
 import java.util.UUID;
 import net.mohron.skyclaims.SkyClaims;
 import net.mohron.skyclaims.SkyClaimsTimings;
+import net.mohron.skyclaims.config.type.WorldConfig;
 import net.mohron.skyclaims.permissions.Options;
+import net.mohron.skyclaims.schematic.CompiledSchematic;
 import net.mohron.skyclaims.schematic.IslandSchematic;
 import net.mohron.skyclaims.util.CommandUtil;
 import net.mohron.skyclaims.util.WorldUtil;
+import net.mohron.skyclaims.world.region.Region;
 import org.spongepowered.api.Sponge;
 import org.spongepowered.api.entity.Transform;
-import org.spongepowered.api.world.BlockChangeFlags;
 import org.spongepowered.api.world.Location;
 import org.spongepowered.api.world.World;
-import org.spongepowered.api.world.extent.ArchetypeVolume;
 
 public class GenerateIslandTask implements Runnable {
 
@@ -39,6 +40,7 @@ public class GenerateIslandTask implements Runnable {
   private UUID owner;
   private Island island;
   private IslandSchematic schematic;
+  private OperationJournal.Operation operation;
 
   public GenerateIslandTask(UUID owner, Island island, IslandSchematic schematic) {
     this.owner = owner;
@@ -46,14 +48,49 @@ public class GenerateIslandTask implements Runnable {
     this.schematic = schematic;
   }
 
+  /**
+   * Completes a journaled operation once the island has been generated.
+   */
+  public GenerateIslandTask journal(OperationJournal.Operation operation) {
+    this.operation = operation;
+    return this;
+  }
+
   @Override
   public void run() {
     SkyClaimsTimings.GENERATE_ISLAND.startTimingIfSync();
+
+    SchematicPaste paste = paste();
+    // Players may be sent to the island as soon as the blocks around its spawn are in place
+    paste.getOrigin().thenRun(() -> teleport(paste.getLocation()));
+    paste.getCompletion().thenRun(() -> {
+      setBiome();
+      OperationJournal.getInstance().complete(operation);
+    });
+
+    SkyClaimsTimings.GENERATE_ISLAND.stopTimingIfSync();
+  }
+
+  /**
+   * Starts pasting the schematic at the center of the island's region and moves the island spawn to it.
+   */
+  SchematicPaste paste() {
+    SchematicPaste paste = paste(island.getRegion(), schematic);
+    Location<World> spawn = paste.getLocation();
+    island.setSpawn(new Transform<>(spawn.getExtent(), spawn.getPosition()));
+    return paste;
+  }
+
+  /**
+   * Starts pasting a schematic at the center of a region, spread over several ticks if
+   * {@link WorldConfig#getPasteBlocksPerTick()} is set.
+   */
+  static SchematicPaste paste(Region region, IslandSchematic schematic) {
     World world = PLUGIN.getConfig().getWorldConfig().getWorld();
 
-    ArchetypeVolume volume = schematic.getSchematic();
+    CompiledSchematic compiled = schematic.getCompiled();
 
-    Location<World> centerBlock = island.getRegion().getCenter();
+    Location<World> centerBlock = region.getCenter();
     // Loads center chunks
     for (int x = -1; x <= 1; x++) {
       for (int z = -1; z <= 1; z++) {
@@ -68,29 +105,32 @@ public class GenerateIslandTask implements Runnable {
 
     int height = schematic.getHeight().orElse(PLUGIN.getConfig().getWorldConfig().getIslandHeight());
     Location<World> spawn = new Location<>(
-        island.getWorld(),
+        world,
         centerBlock.getX(),
-        height + volume.getRelativeBlockView().getBlockMax().getY() - volume.getBlockMax().getY() - 1,
+        height - compiled.getBlockMin().getY() - 1,
         centerBlock.getZ()
     );
-    island.setSpawn(new Transform<>(spawn.getExtent(), spawn.getPosition()));
 
-    volume.apply(spawn, BlockChangeFlags.NONE);
+    return SchematicPaste.paste(compiled, spawn, PLUGIN.getConfig().getWorldConfig().getPasteBlocksPerTick());
+  }
 
-    // Set the region's BiomeType using the schematic default biome or player option if set
+  /**
+   * Sets the region's BiomeType using the schematic default biome or player option if set
+   */
+  void setBiome() {
     if (schematic.getBiomeType().isPresent()) {
       WorldUtil.setRegionBiome(island, schematic.getBiomeType().get());
     } else if (Options.getDefaultBiome(owner).isPresent()) {
       WorldUtil.setRegionBiome(island, Options.getDefaultBiome(owner).get());
     }
+  }
 
+  void teleport(Location<World> spawn) {
     if (PLUGIN.getConfig().getMiscConfig().isTeleportOnCreate()) {
       Sponge.getServer().getPlayer(owner).ifPresent(p -> PLUGIN.getGame().getScheduler().createTaskBuilder()
           .delayTicks(20)
           .execute(CommandUtil.createTeleportConsumer(p, spawn))
           .submit(PLUGIN));
     }
-
-    SkyClaimsTimings.GENERATE_ISLAND.stopTimingIfSync();
   }
-}
\ No newline at end of file
+}
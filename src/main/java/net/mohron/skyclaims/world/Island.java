@@ -21,6 +21,7 @@ package net.mohron.skyclaims.world;
 import com.flowpowered.math.vector.Vector3d;
 import com.flowpowered.math.vector.Vector3i;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.griefdefender.api.GriefDefender;
 import com.griefdefender.api.claim.Claim;
@@ -35,6 +36,7 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
@@ -45,14 +47,11 @@ import javax.annotation.Nullable;
 import net.kyori.text.serializer.gson.GsonComponentSerializer;
 import net.mohron.skyclaims.SkyClaims;
 import net.mohron.skyclaims.exception.CreateIslandException;
-import net.mohron.skyclaims.exception.InvalidRegionException;
 import net.mohron.skyclaims.permissions.Options;
 import net.mohron.skyclaims.schematic.IslandSchematic;
 import net.mohron.skyclaims.team.PrivilegeType;
 import net.mohron.skyclaims.util.ClaimUtil;
-import net.mohron.skyclaims.world.region.IRegionPattern;
 import net.mohron.skyclaims.world.region.Region;
-import net.mohron.skyclaims.world.region.SpiralRegionPattern;
 import org.spongepowered.api.Sponge;
 import org.spongepowered.api.block.tileentity.TileEntity;
 import org.spongepowered.api.entity.Entity;
@@ -64,7 +63,6 @@ import org.spongepowered.api.entity.living.animal.Animal;
 import org.spongepowered.api.entity.living.monster.Monster;
 import org.spongepowered.api.entity.living.player.Player;
 import org.spongepowered.api.entity.living.player.User;
-import org.spongepowered.api.scheduler.SpongeExecutorService;
 import org.spongepowered.api.service.context.Context;
 import org.spongepowered.api.service.context.ContextSource;
 import org.spongepowered.api.service.user.UserStorageService;
@@ -77,7 +75,6 @@ import org.spongepowered.api.world.World;
 public class Island implements ContextSource {
 
   private static final SkyClaims PLUGIN = SkyClaims.getInstance();
-  private static final IRegionPattern PATTERN = new SpiralRegionPattern();
 
   private final UUID id;
   private final Context context;
@@ -87,79 +84,77 @@ public class Island implements ContextSource {
   private Transform<World> spawn;
   private boolean locked;
 
-  public Island(User owner, IslandSchematic schematic) throws CreateIslandException {
+  /**
+   * Creates an island that has been allocated a region but not yet claimed or generated. New islands are built by
+   * {@link IslandCreationPipeline}.
+   */
+  Island(UUID owner, Region region) {
     this.id = UUID.randomUUID();
     this.context = new Context("island", this.id.toString());
-    this.owner = owner.getUniqueId();
-    Region region;
-    try {
-      region = PATTERN.nextRegion();
-    } catch (InvalidRegionException e) {
-      throw new CreateIslandException(e.getText());
-    }
+    this.owner = owner;
     this.spawn = new Transform<>(region.getCenter());
     this.locked = true;
-
-    // Create the island claim
-    Claim claim = ClaimUtil.createIslandClaim(owner.getUniqueId(), region);
-    claim.getData().setSpawnPos(spawn.getLocation().getBlockPosition());
-    claim.getData().save();
-    this.claim = claim.getUniqueId();
-
-    Sponge.getScheduler().createTaskBuilder()
-        .execute(IslandManager.processCommands(owner.getName(), schematic))
-        .submit(PLUGIN);
-
-    // Generate the island using the specified schematic
-    GenerateIslandTask generateIsland = new GenerateIslandTask(owner.getUniqueId(), this, schematic);
-    SpongeExecutorService syncExecutor = Sponge.getScheduler().createSyncExecutor(PLUGIN);
-    if (PLUGIN.getConfig().getWorldConfig().isRegenOnCreate()) {
-      CompletableFuture
-          .runAsync(RegenerateRegionTask.clear(region, getWorld()), Sponge.getScheduler().createAsyncExecutor(PLUGIN))
-          .thenRunAsync(generateIsland, syncExecutor);
-    } else {
-      CompletableFuture.runAsync(generateIsland, syncExecutor);
-    }
-
-    save();
   }
 
+  /**
+   * Creates an island loaded from the database. Its claim is checked later by the {@link ClaimReconciliationJob}.
+   */
   public Island(UUID id, UUID owner, UUID claimId, Vector3d spawnLocation, boolean locked) {
     this.id = id;
     this.context = new Context("island", this.id.toString());
     this.owner = owner;
+    this.claim = claimId;
     this.spawn = new Transform<>(PLUGIN.getConfig().getWorldConfig().getWorld(), spawnLocation);
     this.locked = locked;
+  }
 
-    ClaimManager claimManager = GriefDefender.getCore().getClaimManager(spawn.getExtent().getUniqueId());
+  /**
+   * Checks the island's claim, finding it again if its UUID has changed or creating a new one if it is missing, and
+   * brings its type and size up to date. A missing claim is not replaced while another claim covers the island.
+   */
+  ClaimReconciliationJob.Outcome reconcileClaim() {
+    UUID claimId = this.claim;
+    ClaimManager claimManager = GriefDefender.getCore().getClaimManager(getWorld().getUniqueId());
     Claim claim = claimManager.getClaimByUUID(claimId).orElse(null);
     if (claim != null) {
-      this.claim = claimId;
+      ClaimReconciliationJob.Outcome outcome = ClaimReconciliationJob.Outcome.VALID;
       int initialWidth = Options.getMinSize(owner) * 2;
       // Resize claims smaller than the player's initial-size
       if (claim.getWidth() < initialWidth) {
         setWidth(initialWidth);
+        outcome = ClaimReconciliationJob.Outcome.REPAIRED;
       }
       if (claim.getType() != ClaimTypes.TOWN) {
         claim.changeType(ClaimTypes.TOWN);
+        outcome = ClaimReconciliationJob.Outcome.REPAIRED;
       }
+      return outcome;
+    }
+
+    claim = claimManager.getClaimAt(this.getRegion().getCenter().getBlockPosition());
+    if (!claim.isWilderness() && !claim.getOwnerUniqueId().equals(owner)) {
+      PLUGIN.getLogger().warn(
+          "Claim {} for {} is missing and its region is claimed by {}.",
+          claimId, getName().toPlain(), claim.getOwnerUniqueId()
+      );
+      return ClaimReconciliationJob.Outcome.CONFLICTING;
+    }
+    if (!claim.isWilderness()) {
+      PLUGIN.getLogger().warn(
+          "Claim UUID for {} has changed from {} to {}.",
+          getName().toPlain(), claimId, claim.getUniqueId()
+      );
+      setClaimUniqueId(claim.getUniqueId());
     } else {
-      claim = claimManager.getClaimAt(this.getRegion().getCenter().getBlockPosition());
-      if (!claim.isWilderness() && claim.getOwnerUniqueId().equals(owner)) {
-        PLUGIN.getLogger().warn(
-            "Claim UUID for {} has changed from {} to {}.",
-            getName().toPlain(), this.claim, claim.getUniqueId()
-        );
-        this.claim = claim.getUniqueId();
-      } else {
-        try {
-          this.claim = ClaimUtil.createIslandClaim(owner, getRegion()).getUniqueId();
-          PLUGIN.queueForSaving(this);
-        } catch (CreateIslandException e) {
-          PLUGIN.getLogger().error(String.format("Failed to create claim while loading %s (%s).", getName().toPlain(), id), e);
-        }
+      try {
+        setClaimUniqueId(ClaimUtil.createIslandClaim(owner, getRegion()).getUniqueId());
+      } catch (CreateIslandException e) {
+        PLUGIN.getLogger().error(String.format("Failed to create claim for %s (%s).", getName().toPlain(), id), e);
+        return ClaimReconciliationJob.Outcome.CONFLICTING;
       }
     }
+    PLUGIN.getDatabase().saveIsland(this);
+    return ClaimReconciliationJob.Outcome.REPAIRED;
   }
 
   public UUID getUniqueId() {
@@ -198,6 +193,12 @@ public class Island implements ContextSource {
     return claim;
   }
 
+  void setClaimUniqueId(UUID claim) {
+    UUID previous = this.claim;
+    this.claim = claim;
+    IslandManager.updateClaim(this, previous);
+  }
+
   public Optional<Claim> getClaim() {
     return GriefDefender.getCore().getClaimManager(getWorld().getUniqueId()).getClaimByUUID(this.claim);
   }
@@ -337,6 +338,7 @@ public class Island implements ContextSource {
         removeMember(user);
         break;
     }
+    IslandManager.updateMembers(this);
   }
 
   public void promote(User user) {
@@ -353,6 +355,7 @@ public class Island implements ContextSource {
       }
       Sponge.getCauseStackManager().popCause();
     });
+    IslandManager.updateMembers(this);
   }
 
   public void demote(User user) {
@@ -364,6 +367,7 @@ public class Island implements ContextSource {
         Sponge.getCauseStackManager().popCause();
       }
     });
+    IslandManager.updateMembers(this);
   }
 
   public void removeMember(User user) {
@@ -372,6 +376,7 @@ public class Island implements ContextSource {
       c.removeUserTrust(user.getUniqueId(), TrustTypes.NONE);
       Sponge.getCauseStackManager().popCause();
     });
+    IslandManager.updateMembers(this);
   }
 
   public Collection<User> getMembers() {
@@ -455,6 +460,21 @@ public class Island implements ContextSource {
     }
   }
 
+  /**
+   * Gets the privilege of every user with access to this island, as currently trusted on its claim.
+   *
+   * @return A map of user unique ids to their privilege on this island
+   */
+  public Map<UUID, PrivilegeType> getPrivileges() {
+    Map<UUID, PrivilegeType> privileges = Maps.newHashMap();
+    getClaim().ifPresent(claim -> {
+      claim.getUserTrusts(TrustTypes.BUILDER).forEach(uuid -> privileges.put(uuid, PrivilegeType.MEMBER));
+      claim.getUserTrusts(TrustTypes.MANAGER).forEach(uuid -> privileges.put(uuid, PrivilegeType.MANAGER));
+    });
+    privileges.put(owner, PrivilegeType.OWNER);
+    return privileges;
+  }
+
   public Collection<Player> getPlayers() {
     return getWorld().getPlayers().stream()
         .filter(p -> contains(p.getLocation()))
@@ -518,26 +538,63 @@ public class Island implements ContextSource {
   }
 
   private void save() {
-    IslandManager.ISLANDS.put(id, this);
+    IslandManager.register(this);
     PLUGIN.getDatabase().saveIsland(this);
   }
 
   public void clear() {
-    RegenerateRegionTask regenerateRegionTask = RegenerateRegionTask.clear(getRegion(), getWorld());
+    OperationJournal.Operation operation = OperationJournal.getInstance().begin(OperationJournal.Type.CLEAR, this, null);
+    RegenerateRegionTask regenerateRegionTask = RegenerateRegionTask.clear(getRegion(), getWorld()).journal(operation);
     PLUGIN.getGame().getScheduler().createTaskBuilder().async().execute(regenerateRegionTask).submit(PLUGIN);
   }
 
   public void reset(IslandSchematic schematic, boolean runCommands) {
-    RegenerateRegionTask regenerateRegionTask = RegenerateRegionTask.regen(this, schematic, runCommands);
+    OperationJournal.Operation operation = OperationJournal.getInstance().begin(OperationJournal.Type.RESET, this, schematic);
+    RegenerateRegionTask regenerateRegionTask = RegenerateRegionTask.regen(this, schematic, runCommands).journal(operation);
     PLUGIN.getGame().getScheduler().createTaskBuilder().async().execute(regenerateRegionTask).submit(PLUGIN);
   }
 
+  /**
+   * Clears the island's region and then deletes the island.
+   *
+   * @return a future completed once the island has been deleted
+   */
+  public CompletableFuture<Void> cleanup() {
+    OperationJournal journal = OperationJournal.getInstance();
+    OperationJournal.Operation operation = journal.begin(OperationJournal.Type.CLEANUP, this, null);
+    return clearAndRemove(operation)
+        .thenCompose(v -> PLUGIN.getDatabase().removeIsland(this))
+        .thenRunAsync(() -> IslandManager.release(getRegion()), Sponge.getScheduler().createSyncExecutor(PLUGIN))
+        .thenRun(() -> journal.complete(operation));
+  }
+
+  /**
+   * Clears the island's region and then removes its claim, leaving the caller to remove the island from the database.
+   * The region stays reserved until the caller releases it with {@link IslandManager#release(Region)} once the island
+   * has been removed from the database, so it cannot be given to a new island while the old one could still be loaded.
+   *
+   * @return a future completed once the claim has been removed
+   */
+  CompletableFuture<Void> clearAndRemove(OperationJournal.Operation operation) {
+    return CompletableFuture
+        .runAsync(RegenerateRegionTask.clear(getRegion(), getWorld()).journal(operation), Sponge.getScheduler().createAsyncExecutor(PLUGIN))
+        .thenRunAsync(() -> {
+          remove();
+          IslandManager.reserve(getRegion());
+        }, Sponge.getScheduler().createSyncExecutor(PLUGIN));
+  }
+
   public void delete() {
+    remove();
+    PLUGIN.getDatabase().removeIsland(this);
+  }
+
+  private void remove() {
     Sponge.getCauseStackManager().pushCause(PLUGIN.getPluginContainer());
     ClaimManager claimManager = GriefDefender.getCore().getClaimManager(getWorld().getUniqueId());
     getClaim().ifPresent(claimManager::deleteClaim);
-    IslandManager.ISLANDS.remove(id);
-    PLUGIN.getDatabase().removeIsland(this);
+    IslandManager.unregister(this);
+    IslandManager.getRegionPattern().release(getRegion());
     Sponge.getCauseStackManager().popCause();
   }
 }
@@ -20,20 +20,28 @@ package net.mohron.skyclaims.world;
 
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import net.mohron.skyclaims.SkyClaims;
 import net.mohron.skyclaims.SkyClaimsTimings;
 import net.mohron.skyclaims.permissions.Options;
 import org.spongepowered.api.Sponge;
-import org.spongepowered.api.scheduler.SpongeExecutorService;
 
 public class IslandCleanupTask implements Runnable {
 
   private static final SkyClaims PLUGIN = SkyClaims.getInstance();
+  // Expired islands cleared at once, and removed from the database together
+  private static final int BATCH_SIZE = 20;
+
   private final ImmutableList<Island> islands;
 
   public IslandCleanupTask(Collection<Island> islands) {
@@ -46,9 +54,8 @@ public class IslandCleanupTask implements Runnable {
 
     PLUGIN.getLogger().info("Starting island cleanup check.");
     Stopwatch sw = Stopwatch.createStarted();
-    SpongeExecutorService asyncExecutor = Sponge.getScheduler().createAsyncExecutor(PLUGIN);
-    SpongeExecutorService syncExecutor = Sponge.getScheduler().createSyncExecutor(PLUGIN);
 
+    List<Island> expired = Lists.newArrayList();
     islands.forEach(i -> {
       int age = (int) Duration.between(i.getDateLastActive().toInstant(), Instant.now()).toDays();
       int threshold = Options.getExpiration(i.getOwnerUniqueId());
@@ -58,15 +65,58 @@ public class IslandCleanupTask implements Runnable {
       PLUGIN.getLogger().info("{} ({},{}) was inactive for {} days and is being removed.",
           i.getName().toPlain(), i.getRegion().getX(), i.getRegion().getZ(), age
       );
-      CompletableFuture
-          .runAsync(RegenerateRegionTask.clear(i.getRegion(), i.getWorld()), asyncExecutor)
-          .thenRunAsync(i::delete, syncExecutor)
-          .thenRun(() -> PLUGIN.getLogger().info("{} has been successfully removed.", i.getName().toPlain()));
+      expired.add(i);
     });
+    if (!expired.isEmpty()) {
+      remove(expired);
+    }
 
     sw.stop();
     PLUGIN.getLogger().info("Finished island cleanup check in {}ms.", sw.elapsed(TimeUnit.MILLISECONDS));
 
     SkyClaimsTimings.ISLAND_CLEANUP.stopTimingIfSync();
   }
+
+  /**
+   * Clears the expired islands a batch at a time, removing each batch from the database together once it has been
+   * cleared. Cleared regions stay reserved until their islands have been removed from the database.
+   */
+  private void remove(List<Island> expired) {
+    CompletableFuture<Void> future = CompletableFuture.completedFuture(null);
+    for (List<Island> batch : Lists.partition(expired, BATCH_SIZE)) {
+      // A failed batch does not stop the rest from being removed
+      future = future.handle((v, throwable) -> null).thenCompose(v -> removeBatch(batch));
+    }
+  }
+
+  private CompletableFuture<Void> removeBatch(List<Island> batch) {
+    OperationJournal journal = OperationJournal.getInstance();
+    Map<Island, OperationJournal.Operation> operations = Maps.newHashMap();
+    batch.forEach(i -> operations.put(i, journal.begin(OperationJournal.Type.CLEANUP, i, null)));
+
+    List<CompletableFuture<Island>> removals = batch.stream()
+        .map(i -> i.clearAndRemove(operations.get(i)).handle((v, throwable) -> {
+          if (throwable != null) {
+            PLUGIN.getLogger().error(String.format("Failed to remove %s.", i.getName().toPlain()), throwable);
+            return null;
+          }
+          return i;
+        }))
+        .collect(Collectors.toList());
+
+    return CompletableFuture.allOf(removals.toArray(new CompletableFuture[0]))
+        .thenCompose(v -> {
+          List<Island> removed = removals.stream().map(CompletableFuture::join).filter(Objects::nonNull).collect(Collectors.toList());
+          return PLUGIN.getDatabase().deleteAll(removed).thenRunAsync(() -> removed.forEach(i -> {
+            IslandManager.release(i.getRegion());
+            journal.complete(operations.get(i));
+            PLUGIN.getLogger().info("{} has been successfully removed.", i.getName().toPlain());
+          }), Sponge.getScheduler().createSyncExecutor(PLUGIN));
+        })
+        .whenComplete((v, throwable) -> {
+          if (throwable != null) {
+            PLUGIN.getLogger().error("Failed to remove expired islands from the database.", throwable);
+          }
+        });
+  }
 }
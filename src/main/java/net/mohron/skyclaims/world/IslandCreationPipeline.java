@@ -0,0 +1,257 @@
+/*
+ * SkyClaims - A Skyblock plugin made for Sponge
+ * Copyright (C) 2017 Mohron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SkyClaims is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SkyClaims.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.mohron.skyclaims.world;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.griefdefender.api.claim.Claim;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import net.mohron.skyclaims.SkyClaims;
+import net.mohron.skyclaims.exception.CreateIslandException;
+import net.mohron.skyclaims.exception.InvalidRegionException;
+import net.mohron.skyclaims.schematic.IslandSchematic;
+import net.mohron.skyclaims.util.ClaimUtil;
+import net.mohron.skyclaims.util.LatencyHistogram;
+import net.mohron.skyclaims.world.region.Region;
+import org.spongepowered.api.Sponge;
+import org.spongepowered.api.entity.Transform;
+import org.spongepowered.api.entity.living.player.User;
+import org.spongepowered.api.world.Location;
+import org.spongepowered.api.world.World;
+
+/**
+ * Creates a new island in stages, each run on the main thread or a worker thread as Sponge requires. The time spent in
+ * each stage is recorded so slow island creation can be traced to a stage. If any stage fails, everything done by the
+ * earlier stages is undone.
+ */
+public final class IslandCreationPipeline {
+
+  public enum Stage {ALLOCATE, CLAIM, CLEAR, PASTE, BIOME, COMMANDS, TELEPORT, PERSIST}
+
+  private static final SkyClaims PLUGIN = SkyClaims.getInstance();
+  private static final Map<Stage, LatencyHistogram> TIMINGS = Maps.newEnumMap(Stage.class);
+  private static final LatencyHistogram TOTAL = new LatencyHistogram();
+
+  static {
+    for (Stage stage : Stage.values()) {
+      TIMINGS.put(stage, new LatencyHistogram());
+    }
+  }
+
+  private final User owner;
+  private final IslandSchematic schematic;
+  private final OperationJournal journal = OperationJournal.getInstance();
+  private Island island;
+  private IslandPool.Entry pooled;
+  private OperationJournal.Operation operation;
+  private GenerateIslandTask generator;
+  private Location<World> spawn;
+  private boolean reserved = false;
+  private boolean claimed = false;
+  private boolean pasted = false;
+
+  private IslandCreationPipeline(User owner, IslandSchematic schematic) {
+    this.owner = owner;
+    this.schematic = schematic;
+  }
+
+  /**
+   * Creates a new island for the owner using the schematic.
+   *
+   * @return a future completed with the island once it has been generated and saved, or completed exceptionally with a
+   * {@link CreateIslandException} if it could not be created
+   */
+  public static CompletableFuture<Island> create(User owner, IslandSchematic schematic) {
+    return new IslandCreationPipeline(owner, schematic).run();
+  }
+
+  public static Map<Stage, LatencyHistogram> getTimings() {
+    return ImmutableMap.copyOf(TIMINGS);
+  }
+
+  public static LatencyHistogram getTotalTiming() {
+    return TOTAL;
+  }
+
+  private CompletableFuture<Island> run() {
+    Executor sync = Sponge.getScheduler().createSyncExecutor(PLUGIN);
+    Executor async = Sponge.getScheduler().createAsyncExecutor(PLUGIN);
+    long start = System.nanoTime();
+
+    CompletableFuture<Void> future = CompletableFuture.completedFuture(null);
+    future = stage(future, Stage.ALLOCATE, sync, this::allocate);
+    future = stage(future, Stage.CLAIM, sync, this::claim);
+    future = stage(future, Stage.CLEAR, async, this::clear);
+    future = composeStage(future, Stage.PASTE, sync, this::paste);
+    future = stage(future, Stage.BIOME, sync, () -> generator.setBiome());
+    future = stage(future, Stage.COMMANDS, sync, () -> IslandManager.runCommands(owner.getName(), schematic));
+    future = stage(future, Stage.TELEPORT, sync, () -> generator.teleport(spawn));
+    future = stage(future, Stage.PERSIST, sync, this::persist);
+
+    return future
+        .thenApply(v -> {
+          TOTAL.record(System.nanoTime() - start);
+          return island;
+        })
+        .whenCompleteAsync((i, throwable) -> {
+          if (throwable != null) {
+            rollback(throwable);
+          }
+        }, sync);
+  }
+
+  private static CompletableFuture<Void> stage(CompletableFuture<Void> previous, Stage stage, Executor executor, StageAction action) {
+    return composeStage(previous, stage, executor, () -> {
+      action.run();
+      return CompletableFuture.completedFuture(null);
+    });
+  }
+
+  /**
+   * Runs a stage that finishes once the future it returns is completed.
+   */
+  private static CompletableFuture<Void> composeStage(CompletableFuture<Void> previous, Stage stage, Executor executor,
+      AsyncStageAction action) {
+    return previous.thenComposeAsync(v -> {
+      long start = System.nanoTime();
+      CompletableFuture<Void> future;
+      try {
+        future = action.run();
+      } catch (CreateIslandException e) {
+        throw new CompletionException(e);
+      }
+      return future.thenRun(() -> TIMINGS.get(stage).record(System.nanoTime() - start));
+    }, executor);
+  }
+
+  private void allocate() throws CreateIslandException {
+    Region region;
+    pooled = IslandPool.getInstance().take(schematic).orElse(null);
+    if (pooled != null) {
+      region = pooled.getRegion();
+    } else {
+      try {
+        // Reserve the region straight away, so no other pipeline or the island pool can be given it too
+        region = IslandManager.reserveNextRegion();
+        reserved = true;
+      } catch (InvalidRegionException e) {
+        throw new CreateIslandException(e.getText());
+      }
+    }
+    island = new Island(owner.getUniqueId(), region);
+    operation = journal.begin(OperationJournal.Type.CREATE, island, schematic);
+  }
+
+  private void claim() throws CreateIslandException {
+    Claim claim = ClaimUtil.createIslandClaim(owner.getUniqueId(), island.getRegion());
+    island.setClaimUniqueId(claim.getUniqueId());
+    claimed = true;
+    claim.getData().setSpawnPos(island.getSpawn().getLocation().getBlockPosition());
+    claim.getData().save();
+    operation.setClaim(claim.getUniqueId());
+    journal.record(operation, OperationJournal.Stage.CLAIMED);
+    // Index the island right away so its owner cannot create another while this one is built
+    IslandManager.register(island);
+    if (pooled != null) {
+      journal.complete(pooled.getOperation());
+    }
+  }
+
+  private void clear() {
+    // Decode the schematic here rather than in the paste stage on the main thread
+    schematic.getCompiled();
+    // Pooled regions have already been cleared, unless another schematic was pasted into them
+    if (pooled != null ? pooled.isPasted() && !pooled.isPasted(schematic) : PLUGIN.getConfig().getWorldConfig().isRegenOnCreate()) {
+      RegenerateRegionTask.clear(island.getRegion(), island.getWorld()).journal(operation).run();
+    }
+  }
+
+  private CompletableFuture<Void> paste() {
+    generator = new GenerateIslandTask(owner.getUniqueId(), island, schematic);
+    pasted = true;
+    if (pooled != null && pooled.isPasted(schematic)) {
+      spawn = pooled.getSpawn().get();
+      island.setSpawn(new Transform<>(spawn.getExtent(), spawn.getPosition()));
+      return CompletableFuture.completedFuture(null);
+    }
+    SchematicPaste paste = generator.paste();
+    spawn = paste.getLocation();
+    return paste.getCompletion();
+  }
+
+  /**
+   * Queues the island to be saved without waiting for the write, so a slow or unavailable database does not hold up
+   * island creation. The operation stays in the journal until the island has been written.
+   */
+  private void persist() {
+    PLUGIN.getDatabase().saveIsland(island).whenCompleteAsync((v, throwable) -> {
+      if (throwable != null && IslandManager.get(island.getUniqueId()).orElse(null) == island) {
+        // The write is still being retried; saving again waits on it without writing the island twice
+        persist();
+      } else {
+        journal.complete(operation);
+      }
+    }, Sponge.getScheduler().createSyncExecutor(PLUGIN));
+  }
+
+  private void rollback(Throwable throwable) {
+    Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+    if (cause instanceof CreateIslandException) {
+      PLUGIN.getLogger().warn("Failed to create an island for {}: {}", owner.getName(), ((CreateIslandException) cause).getText().toPlain());
+    } else {
+      PLUGIN.getLogger().error(String.format("Failed to create an island for %s.", owner.getName()), cause);
+    }
+    if (island == null) {
+      return;
+    }
+    if (claimed) {
+      if (pasted || pooled != null && pooled.isPasted()) {
+        // Delete the island only once its region is cleared, so the region cannot be given to a new island first
+        CompletableFuture
+            .runAsync(RegenerateRegionTask.clear(island.getRegion(), island.getWorld()).journal(operation),
+                Sponge.getScheduler().createAsyncExecutor(PLUGIN))
+            .thenRunAsync(island::delete, Sponge.getScheduler().createSyncExecutor(PLUGIN))
+            .thenRun(() -> journal.complete(operation));
+        return;
+      }
+      island.delete();
+    } else if (pooled != null) {
+      IslandPool.getInstance().restore(pooled);
+    } else if (reserved) {
+      // Only free the region reserved by this pipeline, never one occupied by anything else
+      IslandManager.release(island.getRegion());
+    }
+    journal.complete(operation);
+  }
+
+  @FunctionalInterface
+  private interface StageAction {
+
+    void run() throws CreateIslandException;
+  }
+
+  @FunctionalInterface
+  private interface AsyncStageAction {
+
+    CompletableFuture<Void> run() throws CreateIslandException;
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * SkyClaims - A Skyblock plugin made for Sponge
+ * Copyright (C) 2017 Mohron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SkyClaims is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SkyClaims.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.mohron.skyclaims.world;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import net.mohron.skyclaims.SkyClaims;
+import net.mohron.skyclaims.config.type.MiscConfig;
+import net.mohron.skyclaims.exception.CreateIslandException;
+import net.mohron.skyclaims.schematic.IslandSchematic;
+import net.mohron.skyclaims.util.LatencyHistogram;
+import org.spongepowered.api.Sponge;
+import org.spongepowered.api.entity.living.player.Player;
+import org.spongepowered.api.entity.living.player.User;
+import org.spongepowered.api.scheduler.SpongeExecutorService;
+import org.spongepowered.api.text.Text;
+import org.spongepowered.api.text.format.TextColors;
+
+/**
+ * Queues new islands so no more than {@link MiscConfig#getCreationConcurrency()} are created at once. Each user may only
+ * have one island queued or being created; asking again returns the same future. Users who are online are served before
+ * those who have left. Must only be used from the main thread.
+ */
+public final class IslandCreationQueue implements Runnable {
+
+  public static final String TASK_NAME = "skyclaims.island.create";
+
+  private static final SkyClaims PLUGIN = SkyClaims.getInstance();
+  private static final IslandCreationQueue INSTANCE = new IslandCreationQueue();
+  // Ticks between reminding waiting players of their place in the queue
+  private static final int POSITION_INTERVAL = 100;
+
+  private final Map<UUID, Request> queue = Maps.newLinkedHashMap();
+  private final Map<UUID, CompletableFuture<Island>> inProgress = Maps.newHashMap();
+  private final LatencyHistogram waitTime = new LatencyHistogram();
+  private long tick = 0;
+
+  private IslandCreationQueue() {
+  }
+
+  public static IslandCreationQueue getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Schedules the repeating task that starts queued island creations.
+   */
+  public static void register() {
+    Sponge.getScheduler().createTaskBuilder()
+        .name(TASK_NAME)
+        .execute(INSTANCE)
+        .intervalTicks(1)
+        .submit(PLUGIN);
+  }
+
+  /**
+   * Queues a new island for the owner, or returns the island already queued or being created for them.
+   *
+   * @return a future completed with the island once it has been created, or completed exceptionally with a
+   * {@link CreateIslandException} if the queue is full or the island could not be created
+   */
+  public CompletableFuture<Island> submit(User owner, IslandSchematic schematic) {
+    CompletableFuture<Island> existing = inProgress.get(owner.getUniqueId());
+    if (existing != null) {
+      return existing;
+    }
+    Request queued = queue.get(owner.getUniqueId());
+    if (queued != null) {
+      return queued.future;
+    }
+
+    MiscConfig config = PLUGIN.getConfig().getMiscConfig();
+    if (queue.size() >= config.getCreationQueueSize()) {
+      CompletableFuture<Island> future = new CompletableFuture<>();
+      future.completeExceptionally(new CreateIslandException(Text.of(TextColors.RED, "Too many islands are being created, please try again later.")));
+      return future;
+    }
+
+    Request request = new Request(owner, schematic);
+    queue.put(owner.getUniqueId(), request);
+    if (inProgress.size() >= config.getCreationConcurrency()) {
+      Sponge.getServer().getPlayer(owner.getUniqueId()).ifPresent(p -> sendPosition(p, getPosition(owner.getUniqueId())));
+    }
+    return request.future;
+  }
+
+  /**
+   * @return The number of islands waiting to be created
+   */
+  public int getDepth() {
+    return queue.size();
+  }
+
+  /**
+   * @return The number of islands being created
+   */
+  public int getInProgress() {
+    return inProgress.size();
+  }
+
+  /**
+   * @return The time islands spent queued before their creation started
+   */
+  public LatencyHistogram getWaitTime() {
+    return waitTime;
+  }
+
+  /**
+   * @return The user's place in the queue, starting at 1, or 0 if they are not queued
+   */
+  public int getPosition(UUID user) {
+    return getOrder().indexOf(queue.get(user)) + 1;
+  }
+
+  @Override
+  public void run() {
+    tick++;
+    if (queue.isEmpty()) {
+      return;
+    }
+
+    SpongeExecutorService syncExecutor = Sponge.getScheduler().createSyncExecutor(PLUGIN);
+    int concurrency = PLUGIN.getConfig().getMiscConfig().getCreationConcurrency();
+    while (inProgress.size() < concurrency && !queue.isEmpty()) {
+      Request request = getOrder().get(0);
+      UUID owner = request.owner.getUniqueId();
+      queue.remove(owner);
+      waitTime.record(System.nanoTime() - request.queued);
+
+      CompletableFuture<Island> creation = IslandCreationPipeline.create(request.owner, request.schematic);
+      inProgress.put(owner, request.future);
+      creation.whenCompleteAsync((island, throwable) -> {
+        inProgress.remove(owner);
+        if (throwable != null) {
+          request.future.completeExceptionally(throwable);
+        } else {
+          request.future.complete(island);
+        }
+      }, syncExecutor);
+    }
+
+    if (tick % POSITION_INTERVAL == 0) {
+      List<Request> order = getOrder();
+      for (int i = 0; i < order.size(); i++) {
+        int position = i + 1;
+        Sponge.getServer().getPlayer(order.get(i).owner.getUniqueId()).ifPresent(p -> sendPosition(p, position));
+      }
+    }
+  }
+
+  /**
+   * @return The queued requests in the order they will be served, online users first
+   */
+  private List<Request> getOrder() {
+    List<Request> online = Lists.newArrayListWithCapacity(queue.size());
+    List<Request> offline = Lists.newArrayList();
+    for (Request request : queue.values()) {
+      (Sponge.getServer().getPlayer(request.owner.getUniqueId()).isPresent() ? online : offline).add(request);
+    }
+    online.addAll(offline);
+    return online;
+  }
+
+  private static void sendPosition(Player player, int position) {
+    player.sendMessage(Text.of(
+        TextColors.GRAY, "Your island is ", TextColors.LIGHT_PURPLE, "#", position, TextColors.GRAY, " in line to be created."
+    ));
+  }
+
+  private static final class Request {
+
+    private final User owner;
+    private final IslandSchematic schematic;
+    private final CompletableFuture<Island> future = new CompletableFuture<>();
+    private final long queued = System.nanoTime();
+
+    private Request(User owner, IslandSchematic schematic) {
+      this.owner = owner;
+      this.schematic = schematic;
+    }
+  }
+}
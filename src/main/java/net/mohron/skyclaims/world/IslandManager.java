@@ -18,9 +18,12 @@
 
 package net.mohron.skyclaims.world;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.griefdefender.api.claim.Claim;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -30,13 +33,19 @@ import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import net.mohron.skyclaims.SkyClaims;
+import net.mohron.skyclaims.config.type.WorldConfig;
+import net.mohron.skyclaims.exception.InvalidRegionException;
 import net.mohron.skyclaims.schematic.IslandSchematic;
 import net.mohron.skyclaims.team.PrivilegeType;
+import net.mohron.skyclaims.world.region.IRegionPattern;
+import net.mohron.skyclaims.world.region.IncrementalSpiralRegionPattern;
 import net.mohron.skyclaims.world.region.Region;
+import net.mohron.skyclaims.world.region.RegionOccupancy;
 import org.spongepowered.api.Sponge;
 import org.spongepowered.api.entity.Transform;
 import org.spongepowered.api.entity.living.player.User;
 import org.spongepowered.api.scheduler.Task;
+import org.spongepowered.api.text.Text;
 import org.spongepowered.api.world.Location;
 import org.spongepowered.api.world.World;
 
@@ -45,79 +54,288 @@ public class IslandManager {
   private static final SkyClaims PLUGIN = SkyClaims.getInstance();
 
   public static Map<UUID, Island> ISLANDS = Maps.newHashMap();
-  public static Set<Island> saveQueue = Sets.newHashSet();
+
+  // Islands indexed by the packed key of the region they occupy
+  private static final Map<Long, Island> REGIONS = Maps.newHashMap();
+  // Islands indexed by the unique id of their GriefDefender claim
+  private static final Map<UUID, Island> CLAIMS = Maps.newHashMap();
+  // Island privileges indexed by user, and the users indexed for each island
+  private static final Map<UUID, Map<Island, PrivilegeType>> PRIVILEGES = Maps.newHashMap();
+  private static final Map<Island, Set<UUID>> MEMBERS = Maps.newIdentityHashMap();
+  // Occupied regions by spiral position, persisted alongside the islands
+  private static RegionOccupancy OCCUPANCY = new RegionOccupancy();
+  // Regions occupied without an island, such as pooled regions and those being allocated, which are not persisted
+  private static final Set<Region> RESERVED = Sets.newHashSet();
+  private static IRegionPattern PATTERN = new IncrementalSpiralRegionPattern();
+  // Patterns that do not consult the occupancy may offer a reserved region more than once
+  private static final int MAX_RESERVE_ATTEMPTS = 100;
+
+  /**
+   * Replaces the loaded islands and rebuilds every lookup index. Only island owners are indexed here; the members of
+   * each island are read from its claim by the {@link ClaimReconciliationJob} over the following ticks.
+   *
+   * @param islands the islands loaded from the database
+   */
+  public static void load(Map<UUID, Island> islands) {
+    ISLANDS = islands;
+    REGIONS.clear();
+    CLAIMS.clear();
+    PRIVILEGES.clear();
+    MEMBERS.clear();
+    RESERVED.clear();
+    islands.values().forEach(island -> index(island, false));
+    ClaimReconciliationJob.getInstance().indexMembers(islands.values());
+    loadOccupancy();
+    IslandPool.getInstance().getRegions().forEach(IslandManager::reserve);
+    WorldConfig config = PLUGIN.getConfig().getWorldConfig();
+    PATTERN = config.getRegionPattern().create(config.getRegionPatternSeed());
+  }
+
+  /**
+   * Loads the stored region occupancy, rebuilding it from the loaded islands only if it is missing or out of date.
+   */
+  private static void loadOccupancy() {
+    Optional<RegionOccupancy> stored = PLUGIN.getDatabase().loadOccupancy();
+    if (stored.isPresent() && stored.get().count() == REGIONS.size()) {
+      OCCUPANCY = stored.get();
+      return;
+    }
+    PLUGIN.getLogger().info("Rebuilding region occupancy for {} islands.", ISLANDS.size());
+    OCCUPANCY = RegionOccupancy.of(ISLANDS.values().stream().map(Island::getRegion).collect(Collectors.toList()));
+    saveOccupancy();
+  }
+
+  /**
+   * Queues the occupancy of the regions that have islands to be saved, leaving out reserved regions.
+   */
+  private static void saveOccupancy() {
+    RegionOccupancy islands = OCCUPANCY.copy();
+    RESERVED.forEach(islands::release);
+    PLUGIN.getDatabase().saveOccupancy(islands);
+  }
+
+  public static RegionOccupancy getOccupancy() {
+    return OCCUPANCY;
+  }
+
+  public static IRegionPattern getRegionPattern() {
+    return PATTERN;
+  }
+
+  static void register(Island island) {
+    ISLANDS.put(island.getUniqueId(), island);
+    index(island, true);
+    boolean reserved = RESERVED.remove(island.getRegion());
+    if (OCCUPANCY.occupy(island.getRegion()) || reserved) {
+      saveOccupancy();
+    }
+  }
+
+  /**
+   * Marks a region as occupied without an island, so it will not be allocated.
+   *
+   * @return false if the region was already occupied or reserved
+   */
+  static boolean reserve(Region region) {
+    if (OCCUPANCY.occupy(region)) {
+      RESERVED.add(region);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Finds the next free region and reserves it, so it cannot be given to anything else before it is registered or
+   * released.
+   *
+   * @return The reserved region
+   * @throws InvalidRegionException if no free region could be found
+   */
+  static Region reserveNextRegion() throws InvalidRegionException {
+    for (int attempt = 0; attempt < MAX_RESERVE_ATTEMPTS; attempt++) {
+      Region region = PATTERN.nextRegion();
+      if (reserve(region)) {
+        return region;
+      }
+    }
+    throw new InvalidRegionException(Text.of("Failed to find a valid region!"));
+  }
+
+  /**
+   * Frees a region reserved with {@link #reserve(Region)}. Regions occupied by an island are left alone.
+   */
+  static void release(Region region) {
+    if (RESERVED.remove(region)) {
+      OCCUPANCY.release(region);
+      PATTERN.release(region);
+    }
+  }
+
+  static void unregister(Island island) {
+    ISLANDS.remove(island.getUniqueId());
+    if (OCCUPANCY.release(island.getRegion())) {
+      saveOccupancy();
+    }
+    REGIONS.remove(island.getRegion().getKey(), island);
+    CLAIMS.remove(island.getClaimUniqueId(), island);
+    unindexMembers(island);
+  }
+
+  /**
+   * Re-reads the owner and claim trusts of a loaded island into the member index.
+   *
+   * @param island the island whose membership may have changed
+   */
+  public static void updateMembers(Island island) {
+    if (ISLANDS.get(island.getUniqueId()) == island) {
+      indexMembers(island);
+    }
+  }
+
+  static void updateClaim(Island island, @Nullable UUID previousClaim) {
+    if (ISLANDS.get(island.getUniqueId()) != island) {
+      return;
+    }
+    if (previousClaim != null) {
+      CLAIMS.remove(previousClaim, island);
+    }
+    if (island.getClaimUniqueId() != null) {
+      CLAIMS.put(island.getClaimUniqueId(), island);
+    }
+  }
+
+  private static void index(Island island, boolean members) {
+    REGIONS.put(island.getRegion().getKey(), island);
+    if (island.getClaimUniqueId() != null) {
+      CLAIMS.put(island.getClaimUniqueId(), island);
+    }
+    if (members) {
+      indexMembers(island);
+    } else {
+      indexOwner(island);
+    }
+  }
+
+  private static void indexOwner(Island island) {
+    unindexMembers(island);
+    PRIVILEGES.computeIfAbsent(island.getOwnerUniqueId(), u -> Maps.newHashMap()).put(island, PrivilegeType.OWNER);
+    MEMBERS.put(island, Sets.newHashSet(island.getOwnerUniqueId()));
+  }
+
+  private static void indexMembers(Island island) {
+    unindexMembers(island);
+    Map<UUID, PrivilegeType> privileges = island.getPrivileges();
+    privileges.forEach((user, privilege) -> PRIVILEGES.computeIfAbsent(user, u -> Maps.newHashMap()).put(island, privilege));
+    MEMBERS.put(island, Sets.newHashSet(privileges.keySet()));
+  }
+
+  private static void unindexMembers(Island island) {
+    Set<UUID> members = MEMBERS.remove(island);
+    if (members == null) {
+      return;
+    }
+    for (UUID user : members) {
+      Map<Island, PrivilegeType> islands = PRIVILEGES.get(user);
+      if (islands != null) {
+        islands.remove(island);
+        if (islands.isEmpty()) {
+          PRIVILEGES.remove(user);
+        }
+      }
+    }
+  }
+
+  /**
+   * Looks up the user's privileges in the member index. Until the members of every loaded island have been indexed, the
+   * islands still waiting are checked against their claims, so members are found before the index catches up.
+   */
+  private static Map<Island, PrivilegeType> getPrivileges(UUID user) {
+    Map<Island, PrivilegeType> indexed = PRIVILEGES.getOrDefault(user, Collections.emptyMap());
+    Collection<Island> unindexed = ClaimReconciliationJob.getInstance().getUnindexed();
+    if (unindexed.isEmpty()) {
+      return indexed;
+    }
+    Map<Island, PrivilegeType> privileges = Maps.newHashMap(indexed);
+    for (Island island : unindexed) {
+      // Owners are indexed when the islands are loaded
+      if (privileges.containsKey(island) || ISLANDS.get(island.getUniqueId()) != island) {
+        continue;
+      }
+      if (island.isManager(user)) {
+        privileges.put(island, PrivilegeType.MANAGER);
+      } else if (island.isMember(user)) {
+        privileges.put(island, PrivilegeType.MEMBER);
+      }
+    }
+    return privileges;
+  }
 
   public static Optional<Island> get(UUID islandUniqueId) {
     return Optional.ofNullable(ISLANDS.get(islandUniqueId));
   }
 
   public static Optional<Island> getByLocation(Location<World> location) {
-    return getByRegion(Region.get(location));
+    return getByRegionKey(Region.getKey(location));
   }
 
   public static Optional<Island> getByTransform(Transform<World> transform) {
-    return getByRegion(Region.get(transform.getLocation()));
+    return getByLocation(transform.getLocation());
   }
 
   public static Optional<Island> getByRegion(Region region) {
-    return ISLANDS.values().stream()
-        .filter(i -> i.getRegion().equals(region))
-        .findAny();
+    return getByRegionKey(region.getKey());
+  }
+
+  private static Optional<Island> getByRegionKey(long key) {
+    return Optional.ofNullable(REGIONS.get(key));
+  }
+
+  public static boolean isOccupied(Region region) {
+    return REGIONS.containsKey(region.getKey());
   }
 
   public static Optional<Island> getByClaim(Claim claim) {
-    for (Island island : ISLANDS.values()) {
-      if (island.getClaim().isPresent() && island.getClaim().get().equals(claim)) {
-        return Optional.of(island);
-      }
-    }
-    return Optional.empty();
+    return getByClaim(claim.getUniqueId());
+  }
+
+  public static Optional<Island> getByClaim(UUID claimUniqueId) {
+    return Optional.ofNullable(CLAIMS.get(claimUniqueId));
   }
 
   public static List<Island> getByUser(User user) {
-    return ISLANDS.values().stream()
-        .filter(i -> i.isMember(user))
-        .collect(Collectors.toList());
+    return Lists.newArrayList(getPrivileges(user.getUniqueId()).keySet());
   }
 
   public static List<Island> getUserIslandsByPrivilege(User user, PrivilegeType privilege) {
-    return ISLANDS.values().stream()
-        .filter(i -> i.getPrivilegeType(user).greaterThanOrEqualTo(privilege))
+    if (privilege == PrivilegeType.NONE) {
+      return Lists.newArrayList(ISLANDS.values());
+    }
+    return getPrivileges(user.getUniqueId()).entrySet().stream()
+        .filter(e -> e.getValue().greaterThanOrEqualTo(privilege))
+        .map(Map.Entry::getKey)
         .collect(Collectors.toList());
   }
 
   @Deprecated
   public static Optional<Island> getByOwner(UUID owner) {
-    for (Island island : ISLANDS.values()) {
-      if (island.getOwnerUniqueId().equals(owner)) {
-        return Optional.of(island);
-      }
-    }
-    return Optional.empty();
+    return getPrivileges(owner).entrySet().stream()
+        .filter(e -> e.getValue() == PrivilegeType.OWNER)
+        .map(Map.Entry::getKey)
+        .findAny();
   }
 
   public static boolean hasIsland(UUID owner) {
-    if (ISLANDS.isEmpty()) {
-      return false;
-    }
-    for (Island island : ISLANDS.values()) {
-      if (island.isMember(owner)) {
-        return true;
-      }
-    }
-    return false;
+    return !getPrivileges(owner).isEmpty();
   }
 
   public static int countByOwner(User owner) {
-    return (int) ISLANDS.values().stream()
-        .filter(i -> i.getOwnerUniqueId().equals(owner.getUniqueId()))
+    return (int) getPrivileges(owner.getUniqueId()).values().stream()
+        .filter(p -> p == PrivilegeType.OWNER)
         .count();
   }
 
   public static int countByMember(User member) {
-    return (int) ISLANDS.values().stream()
-        .filter(i -> i.isMember(member))
-        .count();
+    return getPrivileges(member.getUniqueId()).size();
   }
 
   public Map<UUID, Island> getIslands() {
@@ -125,21 +343,23 @@ public class IslandManager {
   }
 
   public static Consumer<Task> processCommands(String playerName, @Nullable IslandSchematic schematic) {
-    return task -> {
-      // Run island commands defined in config
-      for (String command : PLUGIN.getConfig().getMiscConfig().getIslandCommands()) {
+    return task -> runCommands(playerName, schematic);
+  }
+
+  public static void runCommands(String playerName, @Nullable IslandSchematic schematic) {
+    // Run island commands defined in config
+    for (String command : PLUGIN.getConfig().getMiscConfig().getIslandCommands()) {
+      command = command.replace("@p", playerName);
+      Sponge.getCommandManager().process(Sponge.getServer().getConsole(), command);
+      PLUGIN.getLogger().debug("Ran island command: {}", command);
+    }
+    // Run schematic commands
+    if (schematic != null) {
+      for (String command : schematic.getCommands()) {
         command = command.replace("@p", playerName);
         Sponge.getCommandManager().process(Sponge.getServer().getConsole(), command);
-        PLUGIN.getLogger().debug("Ran island command: {}", command);
+        PLUGIN.getLogger().debug("Ran schematic command: {}", command);
       }
-      // Run schematic commands
-      if (schematic != null) {
-        for (String command : schematic.getCommands()) {
-          command = command.replace("@p", playerName);
-          Sponge.getCommandManager().process(Sponge.getServer().getConsole(), command);
-          PLUGIN.getLogger().debug("Ran schematic command: {}", command);
-        }
-      }
-    };
+    }
   }
 }
@@ -0,0 +1,236 @@
+/*
+ * SkyClaims - A Skyblock plugin made for Sponge
+ * Copyright (C) 2017 Mohron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SkyClaims is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SkyClaims.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.mohron.skyclaims.world;
+
+import com.google.common.collect.ImmutableList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+import net.mohron.skyclaims.SkyClaims;
+import net.mohron.skyclaims.config.type.WorldConfig;
+import net.mohron.skyclaims.exception.InvalidRegionException;
+import net.mohron.skyclaims.schematic.IslandSchematic;
+import net.mohron.skyclaims.world.region.Region;
+import org.spongepowered.api.Sponge;
+import org.spongepowered.api.scheduler.SpongeExecutorService;
+import org.spongepowered.api.world.Location;
+import org.spongepowered.api.world.World;
+
+/**
+ * A pool of regions that have been cleared ahead of time, and optionally had {@link WorldConfig#getIslandPoolSchematic()}
+ * pasted, so new islands can skip those stages. The pool is filled one region at a time, and only while no other
+ * regeneration is queued and the server is not lagging.
+ */
+public final class IslandPool {
+
+  public static final String TASK_NAME = "skyclaims.island.pool";
+
+  private static final SkyClaims PLUGIN = SkyClaims.getInstance();
+  private static final IslandPool INSTANCE = new IslandPool();
+  private static final long FILL_INTERVAL_SECONDS = 5;
+
+  private final Deque<Entry> entries = new ConcurrentLinkedDeque<>();
+  private final AtomicBoolean filling = new AtomicBoolean(false);
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  private IslandPool() {
+  }
+
+  public static IslandPool getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Schedules the repeating task that fills the pool, if the pool is enabled.
+   */
+  public static void register() {
+    if (PLUGIN.getConfig().getWorldConfig().getIslandPoolSize() > 0) {
+      Sponge.getScheduler().createTaskBuilder()
+          .name(TASK_NAME)
+          .execute(INSTANCE::fill)
+          .interval(FILL_INTERVAL_SECONDS, TimeUnit.SECONDS)
+          .async()
+          .submit(PLUGIN);
+    }
+  }
+
+  public int getSize() {
+    return entries.size();
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * @return The fraction of islands created since startup that were given a pooled region
+   */
+  public double getHitRate() {
+    long total = hits.get() + misses.get();
+    return total == 0 ? 0 : hits.get() / (double) total;
+  }
+
+  /**
+   * @return The regions reserved by the pool
+   */
+  public Collection<Region> getRegions() {
+    return entries.stream().map(Entry::getRegion).collect(Collectors.toList());
+  }
+
+  /**
+   * Takes a pooled region for a new island, preferring one that already has the schematic pasted, then one that has only
+   * been cleared. A region pasted with another schematic is taken last, as it must be cleared again before pasting.
+   */
+  Optional<Entry> take(IslandSchematic schematic) {
+    if (PLUGIN.getConfig().getWorldConfig().getIslandPoolSize() <= 0 && entries.isEmpty()) {
+      return Optional.empty();
+    }
+    Entry match = null;
+    for (Entry entry : ImmutableList.copyOf(entries)) {
+      if (entry.isPasted(schematic)) {
+        match = entry;
+        break;
+      } else if (match == null || match.isPasted() && !entry.isPasted()) {
+        match = entry;
+      }
+    }
+    if (match != null && entries.remove(match)) {
+      hits.incrementAndGet();
+      return Optional.of(match);
+    }
+    misses.incrementAndGet();
+    return Optional.empty();
+  }
+
+  /**
+   * Returns an entry taken by an island that could not be created.
+   */
+  void restore(Entry entry) {
+    entries.addFirst(entry);
+  }
+
+  private void fill() {
+    WorldConfig config = PLUGIN.getConfig().getWorldConfig();
+    RegenerationQueue queue = RegenerationQueue.getInstance();
+    if (entries.size() >= config.getIslandPoolSize() || queue.getDepth() > 0 || queue.isThrottled() || !filling.compareAndSet(false, true)) {
+      return;
+    }
+    SpongeExecutorService syncExecutor = Sponge.getScheduler().createSyncExecutor(PLUGIN);
+    Region region = null;
+    OperationJournal.Operation operation = null;
+    try {
+      region = CompletableFuture.supplyAsync(this::reserve, syncExecutor).join();
+      operation = OperationJournal.getInstance().begin(OperationJournal.Type.POOL, null, region, null);
+      World world = config.getWorld();
+      RegenerateRegionTask.clear(region, world).journal(operation).run();
+
+      IslandSchematic schematic = getSchematic(config.getIslandPoolSchematic());
+      Location<World> spawn = null;
+      if (schematic != null) {
+        // Decode the schematic here rather than on the main thread
+        schematic.getCompiled();
+        Region target = region;
+        spawn = CompletableFuture.supplyAsync(() -> GenerateIslandTask.paste(target, schematic), syncExecutor)
+            .thenCompose(paste -> paste.getCompletion().thenApply(v -> paste.getLocation()))
+            .join();
+      }
+
+      entries.add(new Entry(region, operation, schematic != null ? schematic.getName() : null, spawn));
+      PLUGIN.getLogger().debug("Added region ({}, {}) to the island pool ({}/{}).",
+          region.getX(), region.getZ(), entries.size(), config.getIslandPoolSize());
+    } catch (RuntimeException e) {
+      PLUGIN.getLogger().error("Failed to add a region to the island pool.", e);
+      if (region != null) {
+        Region reserved = region;
+        Sponge.getScheduler().createTaskBuilder().execute(() -> IslandManager.release(reserved)).submit(PLUGIN);
+      }
+      OperationJournal.getInstance().complete(operation);
+    } finally {
+      filling.set(false);
+    }
+  }
+
+  private Region reserve() {
+    try {
+      return IslandManager.reserveNextRegion();
+    } catch (InvalidRegionException e) {
+      throw new IllegalStateException(e.getText().toPlain(), e);
+    }
+  }
+
+  @Nullable
+  private static IslandSchematic getSchematic(String name) {
+    if (name.isEmpty()) {
+      return null;
+    }
+    for (IslandSchematic schematic : PLUGIN.getSchematicManager().getSchematics()) {
+      if (schematic.getName().equalsIgnoreCase(name)) {
+        return schematic;
+      }
+    }
+    return null;
+  }
+
+  static final class Entry {
+
+    private final Region region;
+    private final OperationJournal.Operation operation;
+    private final String schematic;
+    private final Location<World> spawn;
+
+    private Entry(Region region, OperationJournal.Operation operation, @Nullable String schematic, @Nullable Location<World> spawn) {
+      this.region = region;
+      this.operation = operation;
+      this.schematic = schematic;
+      this.spawn = spawn;
+    }
+
+    Region getRegion() {
+      return region;
+    }
+
+    OperationJournal.Operation getOperation() {
+      return operation;
+    }
+
+    boolean isPasted() {
+      return spawn != null;
+    }
+
+    boolean isPasted(IslandSchematic schematic) {
+      return spawn != null && schematic.getName().equalsIgnoreCase(this.schematic);
+    }
+
+    Optional<Location<World>> getSpawn() {
+      return Optional.ofNullable(spawn);
+    }
+  }
+}
@@ -0,0 +1,428 @@
+/*
+ * SkyClaims - A Skyblock plugin made for Sponge
+ * Copyright (C) 2017 Mohron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SkyClaims is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SkyClaims.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.mohron.skyclaims.world;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.griefdefender.api.GriefDefender;
+import com.griefdefender.api.claim.ClaimManager;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nullable;
+import net.mohron.skyclaims.SkyClaims;
+import net.mohron.skyclaims.schematic.IslandSchematic;
+import net.mohron.skyclaims.world.region.Region;
+import org.spongepowered.api.Sponge;
+
+/**
+ * An append-only record of the island operations that change a region. Each stage of an operation is written as it
+ * happens and flushed to disk by a background thread, which covers every entry written since its last flush in a single
+ * sync. Operations interrupted by a crash or shutdown can then be resumed or rolled back on the next start. Only the
+ * operations left in the journal are recovered; no regions are scanned.
+ */
+public final class OperationJournal {
+
+  public enum Type {
+    /**
+     * A new island being created. Resumed by resetting the island if it was saved, otherwise its claim and region are
+     * rolled back.
+     */
+    CREATE,
+    /**
+     * An island being reset. Resumed by resetting the island again, or clearing the region if it has since been removed.
+     */
+    RESET,
+    /**
+     * A region being cleared. Resumed by clearing the region again.
+     */
+    CLEAR,
+    /**
+     * An expired island being cleared and then removed. Resumed from the last completed stage.
+     */
+    CLEANUP,
+    /**
+     * A region being prepared for the island pool. Pooled regions are not kept across restarts, so it is cleared.
+     */
+    POOL
+  }
+
+  public enum Stage {STARTED, CLAIMED, CLEARED, COMPLETE}
+
+  private static final SkyClaims PLUGIN = SkyClaims.getInstance();
+  private static final OperationJournal INSTANCE = new OperationJournal();
+  private static final String FILE_NAME = "journal.log";
+  private static final String NONE = "-";
+  private static final long RECOVERY_DELAY_SECONDS = 10;
+  // Entries written before the journal is truncated once no operations are in flight
+  private static final int COMPACT_ENTRIES = 10_000;
+
+  private final Map<UUID, Operation> operations = Maps.newLinkedHashMap();
+  private final ExecutorService flusher = Executors.newSingleThreadExecutor(
+      new ThreadFactoryBuilder().setNameFormat("SkyClaims Journal Writer").setDaemon(true).build()
+  );
+  private final AtomicBoolean flushPending = new AtomicBoolean();
+  private FileChannel channel;
+  private int entries;
+
+  private OperationJournal() {
+  }
+
+  public static OperationJournal getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Reads the unfinished operations left in the journal and rewrites it to contain only those operations.
+   */
+  public synchronized void load() {
+    close();
+    operations.clear();
+    Path path = getPath();
+    try {
+      Files.createDirectories(path.getParent());
+      if (Files.exists(path)) {
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+          Operation operation = Operation.parse(line);
+          if (operation == null) {
+            PLUGIN.getLogger().warn("Ignoring malformed journal entry: {}", line);
+          } else if (operation.stage == Stage.COMPLETE) {
+            operations.remove(operation.id);
+          } else {
+            operations.put(operation.id, operation);
+          }
+        }
+      }
+      Path temp = path.resolveSibling(FILE_NAME + ".tmp");
+      try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+        for (Operation operation : operations.values()) {
+          writer.write(operation.serialize());
+          writer.newLine();
+        }
+      }
+      Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+      entries = operations.size();
+    } catch (IOException e) {
+      PLUGIN.getLogger().error("Unable to load the operation journal.", e);
+    }
+  }
+
+  public synchronized void close() {
+    if (channel != null) {
+      try {
+        channel.force(false);
+        channel.close();
+      } catch (IOException e) {
+        PLUGIN.getLogger().error("Unable to close the operation journal.", e);
+      }
+      channel = null;
+    }
+  }
+
+  public synchronized Collection<Operation> getUnfinished() {
+    return ImmutableList.copyOf(operations.values());
+  }
+
+  public Operation begin(Type type, Island island, @Nullable IslandSchematic schematic) {
+    return begin(type, island.getUniqueId(), island.getRegion(), schematic);
+  }
+
+  public synchronized Operation begin(Type type, @Nullable UUID island, Region region, @Nullable IslandSchematic schematic) {
+    Operation operation = new Operation(UUID.randomUUID(), type, island, region.getX(), region.getZ(),
+        schematic != null ? schematic.getName() : null);
+    operations.put(operation.id, operation);
+    append(operation);
+    return operation;
+  }
+
+  public synchronized void record(@Nullable Operation operation, Stage stage) {
+    if (operation == null) {
+      return;
+    }
+    operation.stage = stage;
+    if (stage == Stage.COMPLETE) {
+      operations.remove(operation.id);
+    }
+    append(operation);
+  }
+
+  public void complete(@Nullable Operation operation) {
+    record(operation, Stage.COMPLETE);
+  }
+
+  private void append(Operation operation) {
+    if (channel == null) {
+      return;
+    }
+    try {
+      if (operations.isEmpty() && entries >= COMPACT_ENTRIES) {
+        channel.truncate(0);
+        entries = 0;
+      }
+      ByteBuffer buffer = ByteBuffer.wrap((operation.serialize() + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      entries++;
+    } catch (IOException e) {
+      PLUGIN.getLogger().error(String.format("Unable to write %s to the operation journal.", operation), e);
+      return;
+    }
+    // Entries written while a flush is waiting to run are covered by that flush
+    if (flushPending.compareAndSet(false, true)) {
+      flusher.execute(this::flush);
+    }
+  }
+
+  private void flush() {
+    flushPending.set(false);
+    FileChannel channel;
+    synchronized (this) {
+      channel = this.channel;
+    }
+    if (channel == null) {
+      return;
+    }
+    try {
+      channel.force(false);
+    } catch (ClosedChannelException e) {
+      // Closing the journal flushes it
+    } catch (IOException e) {
+      PLUGIN.getLogger().error("Unable to flush the operation journal.", e);
+    }
+  }
+
+  /**
+   * Schedules every unfinished operation to be resumed or rolled back shortly after the server has started.
+   */
+  public void recover() {
+    Collection<Operation> unfinished = getUnfinished();
+    if (unfinished.isEmpty()) {
+      return;
+    }
+    PLUGIN.getLogger().info("Recovering {} unfinished island operations.", unfinished.size());
+    Sponge.getScheduler().createTaskBuilder()
+        .delay(RECOVERY_DELAY_SECONDS, TimeUnit.SECONDS)
+        .execute(() -> unfinished.forEach(this::recover))
+        .submit(PLUGIN);
+  }
+
+  private void recover(Operation operation) {
+    Optional<Island> island = operation.getIsland();
+    Region region = operation.getRegion();
+    PLUGIN.getLogger().info("Recovering {}.", operation);
+    switch (operation.type) {
+      case CREATE:
+        if (island.isPresent()) {
+          island.get().reset(operation.getSchematic(), false);
+        } else {
+          // The island was never saved, so remove anything created for it
+          if (operation.claim != null) {
+            Sponge.getCauseStackManager().pushCause(PLUGIN.getPluginContainer());
+            ClaimManager claimManager = GriefDefender.getCore().getClaimManager(PLUGIN.getConfig().getWorldConfig().getWorld().getUniqueId());
+            claimManager.getClaimByUUID(operation.claim).ifPresent(claimManager::deleteClaim);
+            Sponge.getCauseStackManager().popCause();
+          }
+          clear(region, operation.island);
+        }
+        break;
+      case RESET:
+        if (island.isPresent()) {
+          island.get().reset(operation.getSchematic(), false);
+        } else {
+          clear(region, operation.island);
+        }
+        break;
+      case CLEAR:
+      case POOL:
+        clear(region, operation.island);
+        break;
+      case CLEANUP:
+        if (!island.isPresent()) {
+          if (operation.stage != Stage.CLEARED) {
+            clear(region, operation.island);
+          }
+        } else if (operation.stage == Stage.CLEARED) {
+          island.get().delete();
+        } else {
+          island.get().cleanup();
+        }
+        break;
+    }
+    complete(operation);
+  }
+
+  /**
+   * Clears the region of an unfinished operation, unless it has since been taken by, or reserved for, a different
+   * island than the operation's own.
+   */
+  private void clear(Region region, @Nullable UUID island) {
+    Optional<Island> owner = IslandManager.getByRegion(region);
+    if (owner.isPresent() ? !owner.get().getUniqueId().equals(island) : IslandManager.getOccupancy().isOccupied(region)) {
+      PLUGIN.getLogger().info("Region ({}, {}) has been taken by another island, leaving it as is.", region.getX(), region.getZ());
+      return;
+    }
+    if (owner.isPresent()) {
+      regenerate(region);
+      return;
+    }
+    // Keep the region reserved until it has been cleared, so it cannot be given to a new island first
+    IslandManager.reserve(region);
+    regenerate(region).thenRunAsync(() -> IslandManager.release(region), Sponge.getScheduler().createSyncExecutor(PLUGIN));
+  }
+
+  /**
+   * @return a future completed once the region has been cleared
+   */
+  private CompletableFuture<Void> regenerate(Region region) {
+    Operation operation = begin(Type.CLEAR, null, region, null);
+    return CompletableFuture.runAsync(
+        RegenerateRegionTask.clear(region, PLUGIN.getConfig().getWorldConfig().getWorld()).journal(operation),
+        Sponge.getScheduler().createAsyncExecutor(PLUGIN)
+    );
+  }
+
+  private static Path getPath() {
+    return PLUGIN.getConfigDir().resolve("data").resolve(FILE_NAME);
+  }
+
+  public static final class Operation {
+
+    private final UUID id;
+    private final Type type;
+    private final UUID island;
+    private final int regionX;
+    private final int regionZ;
+    private final String schematic;
+    private UUID claim;
+    private Stage stage = Stage.STARTED;
+
+    private Operation(UUID id, Type type, @Nullable UUID island, int regionX, int regionZ, @Nullable String schematic) {
+      this.id = id;
+      this.type = type;
+      this.island = island;
+      this.regionX = regionX;
+      this.regionZ = regionZ;
+      this.schematic = schematic;
+    }
+
+    public Type getType() {
+      return type;
+    }
+
+    public Stage getStage() {
+      return stage;
+    }
+
+    public Region getRegion() {
+      return new Region(regionX, regionZ);
+    }
+
+    public Optional<Island> getIsland() {
+      return island == null ? Optional.empty() : IslandManager.get(island);
+    }
+
+    /**
+     * Records the claim created for this operation, so it can be removed if the operation is rolled back.
+     */
+    public void setClaim(UUID claim) {
+      this.claim = claim;
+    }
+
+    @Nullable
+    private IslandSchematic getSchematic() {
+      List<IslandSchematic> schematics = PLUGIN.getSchematicManager().getSchematics();
+      return schematics.stream()
+          .filter(s -> s.getName().equalsIgnoreCase(schematic))
+          .findAny()
+          .orElseGet(() -> PLUGIN.getSchematicManager().getRandomSchematic());
+    }
+
+    String serialize() {
+      return String.join("\t",
+          id.toString(),
+          type.name(),
+          stage.name(),
+          island != null ? island.toString() : NONE,
+          String.valueOf(regionX),
+          String.valueOf(regionZ),
+          schematic != null ? schematic : NONE,
+          claim != null ? claim.toString() : NONE
+      );
+    }
+
+    /**
+     * @return The operation written on the line, or null if the line is malformed or was cut short
+     */
+    @Nullable
+    static Operation parse(String line) {
+      String[] fields = line.split("\t");
+      if (fields.length != 8) {
+        return null;
+      }
+      try {
+        Operation operation = new Operation(
+            parseUuid(fields[0]),
+            Type.valueOf(fields[1]),
+            NONE.equals(fields[3]) ? null : parseUuid(fields[3]),
+            Integer.parseInt(fields[4]),
+            Integer.parseInt(fields[5]),
+            NONE.equals(fields[6]) ? null : fields[6]
+        );
+        operation.stage = Stage.valueOf(fields[2]);
+        operation.claim = NONE.equals(fields[7]) ? null : parseUuid(fields[7]);
+        return operation;
+      } catch (IllegalArgumentException e) {
+        return null;
+      }
+    }
+
+    private static UUID parseUuid(String value) {
+      // UUID.fromString accepts shortened UUIDs, such as one at the end of a line cut short by a crash
+      if (value.length() != 36) {
+        throw new IllegalArgumentException("Invalid UUID: " + value);
+      }
+      return UUID.fromString(value);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s %s of region (%s, %s) at stage %s", type, island != null ? island : "", regionX, regionZ, stage);
+    }
+  }
+}
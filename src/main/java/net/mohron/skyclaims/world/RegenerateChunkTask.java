@@ -3,7 +3,10 @@ package net.mohron.skyclaims.world;
 import com.flowpowered.math.vector.Vector3i;
 import net.mohron.skyclaims.SkyClaims;
 import net.mohron.skyclaims.SkyClaimsTimings;
+import net.mohron.skyclaims.world.region.RegionFile;
+import org.spongepowered.api.Sponge;
 import org.spongepowered.api.block.BlockState;
+import org.spongepowered.api.block.BlockTypes;
 import org.spongepowered.api.block.tileentity.carrier.TileEntityCarrier;
 import org.spongepowered.api.entity.Entity;
 import org.spongepowered.api.entity.living.player.Player;
@@ -11,28 +14,56 @@ import org.spongepowered.api.world.BlockChangeFlags;
 import org.spongepowered.api.world.Chunk;
 import org.spongepowered.api.world.Location;
 import org.spongepowered.api.world.World;
+import org.spongepowered.api.world.extent.ArchetypeVolume;
 
 public class RegenerateChunkTask implements Runnable {
 
   private static final SkyClaims PLUGIN = SkyClaims.getInstance();
+  private static final int SECTIONS = 16;
+  private static final int SECTION_VOLUME = 16 * 16 * 16;
+  // Sections with more blocks than this to change are written as a whole rather than block by block
+  private static final int BULK_THRESHOLD = SECTION_VOLUME / 2;
 
   private final World world;
   private final Vector3i position;
-  private final BlockState[] blocks;
+  private final Preset preset;
+  private final int savedSections;
   private final Location<World> spawn;
 
-  public RegenerateChunkTask(World world, Vector3i position, BlockState[] blocks, Location<World> spawn) {
+  private int blocksSet = 0;
+  private int sectionsSkipped = 0;
+
+  /**
+   * @param savedSections the chunk's sections saved to its region file, see {@link RegionFile#getSavedSections}
+   */
+  public RegenerateChunkTask(World world, Vector3i position, Preset preset, int savedSections, Location<World> spawn) {
     this.world = world;
     this.position = position;
-    this.blocks = blocks;
+    this.preset = preset;
+    this.savedSections = savedSections;
     this.spawn = spawn;
   }
 
+  /**
+   * @return The number of blocks changed by this task
+   */
+  public int getBlocksSet() {
+    return blocksSet;
+  }
+
+  /**
+   * @return The number of sections that already matched the preset and were left untouched
+   */
+  public int getSectionsSkipped() {
+    return sectionsSkipped;
+  }
 
   @Override
   public void run() {
     SkyClaimsTimings.CLEAR_ISLAND.startTimingIfSync();
 
+    // A loaded chunk may have changed since it was saved, so its saved sections can only be trusted if it is not
+    final int sections = world.getChunk(position).isPresent() ? RegionFile.ALL_SECTIONS : savedSections;
     final Chunk chunk = world.loadChunk(position, true).orElse(null);
 
     if (chunk == null) {
@@ -45,21 +76,102 @@ public class RegenerateChunkTask implements Runnable {
     chunk.getEntities(e -> e instanceof Player).forEach(e -> e.setLocationSafely(spawn));
     // Clear the contents of an tile entity with an inventory
     chunk.getTileEntities(e -> e instanceof TileEntityCarrier).forEach(e -> ((TileEntityCarrier) e).getInventory().clear());
-    // Set the blocks
-    for (int by = chunk.getBlockMin().getY(); by <= chunk.getBlockMax().getY(); by++) {
-      for (int bx = chunk.getBlockMin().getX(); bx <= chunk.getBlockMax().getX(); bx++) {
-        for (int bz = chunk.getBlockMin().getZ(); bz <= chunk.getBlockMax().getZ(); bz++) {
-          if (!chunk.getBlock(bx, by, bz).equals(blocks[by])) {
-            chunk.getLocation(bx, by, bz).setBlock(blocks[by], BlockChangeFlags.NONE);
-          }
-        }
+    // Set the blocks, one 16 block tall section at a time
+    for (int section = 0; section < SECTIONS; section++) {
+      if (regenerateSection(chunk, section, (sections >>> section & 1) != 0)) {
+        sectionsSkipped++;
       }
     }
     // Remove any remaining entities.
     chunk.getEntities(e -> !(e instanceof Player)).forEach(Entity::remove);
     chunk.unloadChunk();
-    PLUGIN.getLogger().debug("Finished regenerating chunk {}", position.toString());
+    PLUGIN.getLogger().debug("Finished regenerating chunk {}: {} blocks set, {} of {} sections skipped",
+        position.toString(), blocksSet, sectionsSkipped, SECTIONS);
 
     SkyClaimsTimings.CLEAR_ISLAND.stopTimingIfSync();
   }
+
+  /**
+   * Sets the blocks of a 16x16x16 section that do not match the preset. A section that was not saved is entirely air,
+   * so it is skipped without being read if the preset is air at those layers. Otherwise the differing blocks are
+   * found in a single pass, then either set one at a time or, if most of the section differs, written as a whole.
+   *
+   * @return true if the section already matched the preset
+   */
+  private boolean regenerateSection(Chunk chunk, int section, boolean saved) {
+    if (!saved && preset.isAir(section)) {
+      return true;
+    }
+    Vector3i min = chunk.getBlockMin();
+    int minY = section << 4;
+    short[] changes = new short[SECTION_VOLUME];
+    int changed = 0;
+    for (int y = 0; y < 16; y++) {
+      BlockState layer = preset.getBlock(minY + y);
+      for (int x = 0; x < 16; x++) {
+        for (int z = 0; z < 16; z++) {
+          if (!layer.equals(chunk.getBlock(min.getX() + x, minY + y, min.getZ() + z))) {
+            changes[changed++] = (short) (y << 8 | x << 4 | z);
+          }
+        }
+      }
+    }
+    if (changed > BULK_THRESHOLD) {
+      preset.getSection(section).apply(new Location<>(world, min.getX(), minY, min.getZ()), BlockChangeFlags.NONE);
+    } else {
+      for (int i = 0; i < changed; i++) {
+        int y = changes[i] >> 8;
+        chunk.setBlock(min.getX() + (changes[i] >> 4 & 15), minY + y, min.getZ() + (changes[i] & 15), preset.getBlock(minY + y), BlockChangeFlags.NONE);
+      }
+    }
+    blocksSet += changed;
+    return changed == 0;
+  }
+
+  /**
+   * The layers of a flat world preset, split into 16 block tall sections.
+   */
+  public static final class Preset {
+
+    private final BlockState[] blocks;
+    private final ArchetypeVolume[] sections = new ArchetypeVolume[SECTIONS];
+    private final boolean[] air = new boolean[SECTIONS];
+
+    public Preset(BlockState[] blocks) {
+      this.blocks = blocks;
+      BlockState empty = BlockTypes.AIR.getDefaultState();
+      for (int section = 0; section < SECTIONS; section++) {
+        air[section] = true;
+        for (int y = section << 4; y < section + 1 << 4; y++) {
+          air[section] &= empty.equals(blocks[y]);
+        }
+      }
+    }
+
+    private BlockState getBlock(int y) {
+      return blocks[y];
+    }
+
+    private boolean isAir(int section) {
+      return air[section];
+    }
+
+    /**
+     * @return A volume of the section's layers, created when first needed on the main thread
+     */
+    private ArchetypeVolume getSection(int section) {
+      if (sections[section] == null) {
+        ArchetypeVolume volume = Sponge.getRegistry().getExtentBufferFactory().createArchetypeVolume(new Vector3i(16, 16, 16), Vector3i.ZERO);
+        for (int y = 0; y < 16; y++) {
+          for (int x = 0; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+              volume.setBlock(x, y, z, blocks[(section << 4) + y]);
+            }
+          }
+        }
+        sections[section] = volume;
+      }
+      return sections[section];
+    }
+  }
 }
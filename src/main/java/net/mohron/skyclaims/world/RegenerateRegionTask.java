@@ -21,30 +21,40 @@ package net.mohron.skyclaims.world;
 import com.flowpowered.math.vector.Vector3i;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.Lists;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import net.mohron.skyclaims.SkyClaims;
 import net.mohron.skyclaims.config.type.WorldConfig;
+import net.mohron.skyclaims.config.type.WorldConfig.RegenMethod;
 import net.mohron.skyclaims.schematic.IslandSchematic;
 import net.mohron.skyclaims.util.FlatWorldUtil;
 import net.mohron.skyclaims.world.region.Region;
+import net.mohron.skyclaims.world.region.RegionFile;
 import org.spongepowered.api.Sponge;
-import org.spongepowered.api.block.BlockState;
+import org.spongepowered.api.entity.living.player.Player;
 import org.spongepowered.api.entity.living.player.User;
 import org.spongepowered.api.scheduler.SpongeExecutorService;
+import org.spongepowered.api.world.Chunk;
 import org.spongepowered.api.world.Location;
 import org.spongepowered.api.world.World;
 
 public class RegenerateRegionTask implements Runnable {
 
   private static final SkyClaims PLUGIN = SkyClaims.getInstance();
+  private static final long REGION_FILE_SETTLE_SECONDS = 5;
+  private static final String VOID_MODIFIER = "skyclaims:void";
 
   private Region region;
   private World world;
   private Island island;
   private IslandSchematic schematic;
   private boolean commands;
+  private OperationJournal.Operation operation;
 
   private RegenerateRegionTask(Region region, World world) {
     this.region = region;
@@ -69,6 +79,14 @@ public class RegenerateRegionTask implements Runnable {
     return new RegenerateRegionTask(region, world);
   }
 
+  /**
+   * Records the progress of this regeneration against a journaled operation.
+   */
+  public RegenerateRegionTask journal(OperationJournal.Operation operation) {
+    this.operation = operation;
+    return this;
+  }
+
   @Override
   public void run() {
     WorldConfig config = PLUGIN.getConfig().getWorldConfig();
@@ -80,14 +98,24 @@ public class RegenerateRegionTask implements Runnable {
     String preset = schematic != null && schematic.getPreset().isPresent()
         ? schematic.getPreset().get()
         : config.getPresetCode();
-    PLUGIN.getLogger().info("Using preset code '{}' to regenerate region.", preset);
+    // Only a void region can be left for the world generator to recreate
+    boolean generatesVoid = FlatWorldUtil.getBlocksSafely(preset) == FlatWorldUtil.getVoidWorld()
+        && world.getProperties().getGeneratorModifiers().stream().anyMatch(m -> m.getId().equals(VOID_MODIFIER));
 
-    regenerateChunks(preset, config.getSpawn());
+    if (!generatesVoid || config.getRegenMethod() != RegenMethod.REGION_FILE || !regenerateRegionFile(config.getSpawn())) {
+      PLUGIN.getLogger().info("Using preset code '{}' to regenerate region.", preset);
+      regenerateChunks(preset, config.getSpawn(), generatesVoid);
+    }
 
     sw.stop();
 
     PLUGIN.getLogger().info("Finished regenerating region ({}, {}) in {}s.", region.getX(), region.getZ(), sw.elapsed(TimeUnit.SECONDS));
 
+    OperationJournal.getInstance().record(operation, OperationJournal.Stage.CLEARED);
+    if (operation != null && operation.getType() == OperationJournal.Type.CLEAR) {
+      OperationJournal.getInstance().complete(operation);
+    }
+
     if (island != null) {
       if (commands) {
         for (User member : island.getMembers()) {
@@ -99,27 +127,152 @@ public class RegenerateRegionTask implements Runnable {
 
       Sponge.getScheduler().createTaskBuilder()
           .delay(1, TimeUnit.SECONDS)
-          .execute(new GenerateIslandTask(island.getOwnerUniqueId(), island, schematic))
+          .execute(new GenerateIslandTask(island.getOwnerUniqueId(), island, schematic).journal(operation))
           .submit(PLUGIN);
     }
   }
 
-  private void regenerateChunks(String preset, Location<World> spawn) {
+  /**
+   * Unloads every chunk in the region and empties its region file, leaving the world generator to recreate it. The
+   * world is saved before the file is emptied, and the file is checked again afterwards, as the server writes chunks to
+   * disk on its own thread and a late write would bring old chunks back.
+   *
+   * @return false if the region could not be unloaded or emptied and must be regenerated block by block
+   */
+  private boolean regenerateRegionFile(Location<World> spawn) {
+    SpongeExecutorService executor = Sponge.getScheduler().createSyncExecutor(PLUGIN);
+    try {
+      if (!CompletableFuture.supplyAsync(() -> unloadChunks(spawn), executor).join()) {
+        PLUGIN.getLogger().warn("Unable to unload region ({}, {}), falling back to regenerating blocks.", region.getX(), region.getZ());
+        return false;
+      }
+      // Give the server time to write out the chunks that were just unloaded before emptying the file
+      boolean cleared = executor.schedule(() -> {
+        if (getLoadedChunks().isEmpty()) {
+          world.save();
+          boolean emptied = RegionFile.clear(world, region);
+          PLUGIN.getLogger().info("{} region file for ({}, {}).", emptied ? "Emptied" : "No", region.getX(), region.getZ());
+          return true;
+        }
+        PLUGIN.getLogger().warn("Region ({}, {}) was loaded again before it could be reset, falling back to regenerating blocks.",
+            region.getX(), region.getZ());
+        return false;
+      }, REGION_FILE_SETTLE_SECONDS, TimeUnit.SECONDS).get();
+      if (!cleared) {
+        return false;
+      }
+      // Anything written to the file after it was emptied would restore old chunks
+      TimeUnit.SECONDS.sleep(REGION_FILE_SETTLE_SECONDS);
+      if (!RegionFile.getSavedChunks(world, region).isEmpty()) {
+        PLUGIN.getLogger().warn("Chunks were written to the region file for ({}, {}) after it was emptied, falling back to regenerating blocks.",
+            region.getX(), region.getZ());
+        return false;
+      }
+      return true;
+    } catch (InterruptedException | ExecutionException | IOException | RuntimeException e) {
+      PLUGIN.getLogger().error(String.format("Could not reset the region file for (%s, %s).", region.getX(), region.getZ()), e);
+      return false;
+    }
+  }
+
+  private boolean unloadChunks(Location<World> spawn) {
+    for (Chunk chunk : getLoadedChunks()) {
+      // Teleport any players to world spawn
+      chunk.getEntities(e -> e instanceof Player).forEach(e -> e.setLocationSafely(spawn));
+      if (!chunk.unloadChunk()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private List<Chunk> getLoadedChunks() {
+    List<Chunk> chunks = Lists.newArrayList();
+    for (Chunk chunk : world.getLoadedChunks()) {
+      if (chunk.getPosition().getX() >> 5 == region.getX() && chunk.getPosition().getZ() >> 5 == region.getZ()) {
+        chunks.add(chunk);
+      }
+    }
+    return chunks;
+  }
+
+  private void regenerateChunks(String preset, Location<World> spawn, boolean generatesVoid) {
     SpongeExecutorService executor = Sponge.getScheduler().createSyncExecutor(PLUGIN);
-    BlockState[] blocks = FlatWorldUtil.getBlocksSafely(preset);
+    RegenerationQueue queue = RegenerationQueue.getInstance();
+    RegenerateChunkTask.Preset layers = new RegenerateChunkTask.Preset(FlatWorldUtil.getBlocksSafely(preset));
+    BitSet chunks;
+    if (generatesVoid) {
+      chunks = getChunksToRegenerate(executor);
+    } else {
+      // Chunks that have never been generated must still be generated to be given the preset's layers
+      chunks = new BitSet(RegionFile.CHUNKS);
+      chunks.set(0, RegionFile.CHUNKS);
+    }
+    int[] sections = getSavedSections();
+    PLUGIN.getLogger().info("Regenerating {} of {} chunks in region ({}, {}).", chunks.cardinality(), RegionFile.CHUNKS, region.getX(), region.getZ());
     int progress = 0;
+    long blocksSet = 0;
+    long sectionsSkipped = 0;
     for (int x = region.getLesserBoundary().getX(); x < region.getGreaterBoundary().getX(); x += 16) {
+      List<RegenerateChunkTask> chunkTasks = Lists.newArrayListWithCapacity(32);
       List<CompletableFuture<Void>> tasks = Lists.newArrayListWithCapacity(32);
       for (int z = region.getLesserBoundary().getZ(); z < region.getGreaterBoundary().getZ(); z += 16) {
         Vector3i position = Sponge.getServer().getChunkLayout().forceToChunk(x, 0, z);
-        tasks.add(CompletableFuture.runAsync(new RegenerateChunkTask(world, position, blocks, spawn), executor));
+        if (chunks.get(RegionFile.getIndex(position))) {
+          RegenerateChunkTask task = new RegenerateChunkTask(world, position, layers, sections[RegionFile.getIndex(position)], spawn);
+          chunkTasks.add(task);
+          tasks.add(queue.submit(task));
+        }
       }
       try {
-        CompletableFuture.allOf(tasks.toArray(new CompletableFuture[32])).join();
-        PLUGIN.getLogger().info("Regenerating region {}, {} {}% complete", region.getX(), region.getZ(), Math.round(++progress / 32f * 100));
+        CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).join();
+        for (RegenerateChunkTask task : chunkTasks) {
+          blocksSet += task.getBlocksSet();
+          sectionsSkipped += task.getSectionsSkipped();
+        }
+        PLUGIN.getLogger().info("Regenerating region {}, {} {}% complete ({} chunks queued)",
+            region.getX(), region.getZ(), Math.round(++progress / 32f * 100), queue.getDepth());
       } catch (RuntimeException e) {
         PLUGIN.getLogger().error("Could not regenerate chunk.", e);
       }
     }
+    PLUGIN.getLogger().info("Set {} blocks in region ({}, {}), skipping {} sections that already matched the preset.",
+        blocksSet, region.getX(), region.getZ(), sectionsSkipped);
+  }
+
+  private int[] getSavedSections() {
+    try {
+      return RegionFile.getSavedSections(world, region);
+    } catch (IOException e) {
+      PLUGIN.getLogger().warn(String.format("Unable to read the region file for (%s, %s), checking every section.", region.getX(), region.getZ()), e);
+      int[] sections = new int[RegionFile.CHUNKS];
+      Arrays.fill(sections, RegionFile.ALL_SECTIONS);
+      return sections;
+    }
+  }
+
+  /**
+   * Finds the chunks that have been generated in this region, either saved to its region file or currently loaded.
+   * Chunks that have never been generated are already void, so they are skipped rather than generated only to be
+   * cleared.
+   */
+  private BitSet getChunksToRegenerate(SpongeExecutorService executor) {
+    BitSet chunks;
+    try {
+      chunks = RegionFile.getSavedChunks(world, region);
+    } catch (IOException e) {
+      PLUGIN.getLogger().warn(String.format("Unable to read the region file for (%s, %s), regenerating every chunk.", region.getX(), region.getZ()), e);
+      chunks = new BitSet(RegionFile.CHUNKS);
+      chunks.set(0, RegionFile.CHUNKS);
+      return chunks;
+    }
+    // Newly generated chunks may not have been saved yet
+    BitSet loaded = CompletableFuture.supplyAsync(() -> {
+      BitSet positions = new BitSet(RegionFile.CHUNKS);
+      getLoadedChunks().forEach(chunk -> positions.set(RegionFile.getIndex(chunk.getPosition())));
+      return positions;
+    }, executor).join();
+    chunks.or(loaded);
+    return chunks;
   }
 }
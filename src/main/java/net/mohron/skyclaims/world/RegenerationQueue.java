@@ -0,0 +1,173 @@
+/*
+ * SkyClaims - A Skyblock plugin made for Sponge
+ * Copyright (C) 2017 Mohron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SkyClaims is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SkyClaims.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.mohron.skyclaims.world;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.mohron.skyclaims.SkyClaims;
+import net.mohron.skyclaims.SkyClaimsTimings;
+import net.mohron.skyclaims.config.type.WorldConfig;
+import org.spongepowered.api.Sponge;
+
+/**
+ * A server wide queue of chunks waiting to be regenerated. Every region being regenerated shares this queue, which is
+ * drained on the main thread for at most {@link WorldConfig#getRegenTickBudget()} milliseconds each tick. While the
+ * server is below {@link WorldConfig#getRegenMinTps()} the budget shrinks and the queue is drained less often as the TPS
+ * falls, until only a single chunk is regenerated each second once the TPS has fallen to half of the minimum.
+ */
+public final class RegenerationQueue implements Runnable {
+
+  public static final String TASK_NAME = "skyclaims.regen.queue";
+
+  private static final SkyClaims PLUGIN = SkyClaims.getInstance();
+  private static final RegenerationQueue INSTANCE = new RegenerationQueue();
+  // The most ticks between runs while the server is below the minimum TPS
+  private static final int THROTTLED_INTERVAL = 20;
+  // Ticks of history used to measure throughput
+  private static final int WINDOW = 20 * 60;
+
+  private final Queue<Entry> queue = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger depth = new AtomicInteger();
+  private final int[] completed = new int[WINDOW];
+  private int completedInWindow = 0;
+  private long tick = 0;
+  private long totalCompleted = 0;
+  private boolean throttled = false;
+
+  private RegenerationQueue() {
+  }
+
+  public static RegenerationQueue getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Schedules the repeating task that drains the queue.
+   */
+  public static void register() {
+    Sponge.getScheduler().createTaskBuilder()
+        .name(TASK_NAME)
+        .execute(INSTANCE)
+        .intervalTicks(1)
+        .submit(PLUGIN);
+  }
+
+  /**
+   * Queues a chunk to be regenerated on the main thread.
+   *
+   * @return a future completed once the chunk has been regenerated
+   */
+  public CompletableFuture<Void> submit(RegenerateChunkTask task) {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    queue.add(new Entry(task, future));
+    depth.incrementAndGet();
+    return future;
+  }
+
+  /**
+   * @return The number of chunks waiting to be regenerated
+   */
+  public int getDepth() {
+    return depth.get();
+  }
+
+  /**
+   * @return The number of chunks regenerated per second, averaged over the last minute
+   */
+  public double getThroughput() {
+    return completedInWindow / (double) Math.min(Math.max(1, tick), WINDOW) * 20;
+  }
+
+  public long getTotalCompleted() {
+    return totalCompleted;
+  }
+
+  /**
+   * @return true if the queue was throttled on the last tick because the server was below the minimum TPS
+   */
+  public boolean isThrottled() {
+    return throttled;
+  }
+
+  @Override
+  public void run() {
+    int slot = (int) (tick++ % WINDOW);
+    completedInWindow -= completed[slot];
+    completed[slot] = 0;
+
+    if (queue.isEmpty()) {
+      throttled = false;
+      return;
+    }
+
+    SkyClaimsTimings.REGEN_QUEUE.startTimingIfSync();
+
+    WorldConfig config = PLUGIN.getConfig().getWorldConfig();
+    double tps = Sponge.getServer().getTicksPerSecond();
+    double minTps = config.getRegenMinTps();
+    long budget = TimeUnit.MILLISECONDS.toNanos(config.getRegenTickBudget());
+    throttled = tps < minTps;
+    // Scales from the full budget at the minimum TPS down to nothing at half of it
+    double scale = throttled ? (tps - minTps / 2) / (minTps / 2) : 1;
+    boolean singleChunk = scale <= 0;
+    int interval = singleChunk ? THROTTLED_INTERVAL : (int) Math.min(THROTTLED_INTERVAL, Math.ceil(1 / scale));
+    if (tick % interval != 0) {
+      SkyClaimsTimings.REGEN_QUEUE.stopTimingIfSync();
+      return;
+    }
+
+    long deadline = System.nanoTime() + (long) (budget * Math.max(0, scale));
+    int count = 0;
+    Entry entry;
+    // Always make progress, even if a single chunk takes longer than the budget
+    while ((entry = queue.poll()) != null) {
+      depth.decrementAndGet();
+      try {
+        entry.task.run();
+        entry.future.complete(null);
+      } catch (RuntimeException e) {
+        entry.future.completeExceptionally(e);
+      }
+      count++;
+      if (singleChunk || System.nanoTime() >= deadline) {
+        break;
+      }
+    }
+
+    completed[slot] = count;
+    completedInWindow += count;
+    totalCompleted += count;
+
+    SkyClaimsTimings.REGEN_QUEUE.stopTimingIfSync();
+  }
+
+  private static final class Entry {
+
+    private final RegenerateChunkTask task;
+    private final CompletableFuture<Void> future;
+
+    private Entry(RegenerateChunkTask task, CompletableFuture<Void> future) {
+      this.task = task;
+      this.future = future;
+    }
+  }
+}
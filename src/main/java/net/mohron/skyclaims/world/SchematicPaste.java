@@ -0,0 +1,209 @@
+/*
+ * SkyClaims - A Skyblock plugin made for Sponge
+ * Copyright (C) 2017 Mohron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SkyClaims is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SkyClaims.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.mohron.skyclaims.world;
+
+import com.flowpowered.math.vector.Vector3i;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import net.mohron.skyclaims.SkyClaims;
+import net.mohron.skyclaims.SkyClaimsTimings;
+import net.mohron.skyclaims.schematic.CompiledSchematic;
+import org.spongepowered.api.Sponge;
+import org.spongepowered.api.block.BlockState;
+import org.spongepowered.api.block.BlockTypes;
+import org.spongepowered.api.scheduler.Task;
+import org.spongepowered.api.world.BlockChangeFlags;
+import org.spongepowered.api.world.Location;
+import org.spongepowered.api.world.World;
+
+/**
+ * Pastes a compiled schematic, either at once or spread over several ticks. Air in the schematic replaces whatever is
+ * in the world, but is not set where the world is already air, as most pastes are into cleared regions. A spread paste sets the blocks one chunk column at a time, starting with
+ * the column holding the paste origin, and sets at most a fixed number of blocks each tick. Tile entities and entities
+ * are created once every block has been set.
+ */
+final class SchematicPaste implements Consumer<Task> {
+
+  private static final SkyClaims PLUGIN = SkyClaims.getInstance();
+
+  private final CompiledSchematic schematic;
+  private final Location<World> location;
+  private final int budget;
+  private final List<Slice> slices;
+  private final CompletableFuture<Void> origin = new CompletableFuture<>();
+  private final CompletableFuture<Void> completion = new CompletableFuture<>();
+  private int slice = 0;
+  private int index = 0;
+
+  private SchematicPaste(CompiledSchematic schematic, Location<World> location, int budget) {
+    this.schematic = schematic;
+    this.location = location;
+    this.budget = budget;
+    this.slices = budget > 0 ? getSlices(schematic, location) : Lists.newArrayList();
+  }
+
+  /**
+   * Pastes the schematic at the location.
+   *
+   * @param budget The maximum number of blocks to set each tick, or 0 to paste the whole schematic at once
+   */
+  static SchematicPaste paste(CompiledSchematic schematic, Location<World> location, int budget) {
+    SchematicPaste paste = new SchematicPaste(schematic, location, budget);
+    if (budget <= 0) {
+      for (int i = 0; i < schematic.getBlockCount(); i++) {
+        paste.setBlock(i);
+      }
+      paste.applyArchetypes();
+      paste.origin.complete(null);
+      paste.completion.complete(null);
+    } else {
+      Sponge.getScheduler().createTaskBuilder()
+          .execute(paste)
+          .intervalTicks(1)
+          .submit(PLUGIN);
+    }
+    return paste;
+  }
+
+  /**
+   * @return The location the schematic is pasted at
+   */
+  Location<World> getLocation() {
+    return location;
+  }
+
+  /**
+   * @return a future completed once the chunk column holding the paste location has been set
+   */
+  CompletableFuture<Void> getOrigin() {
+    return origin;
+  }
+
+  /**
+   * @return a future completed once the whole schematic has been pasted
+   */
+  CompletableFuture<Void> getCompletion() {
+    return completion;
+  }
+
+  @Override
+  public void accept(Task task) {
+    SkyClaimsTimings.GENERATE_ISLAND.startTimingIfSync();
+    try {
+      int remaining = budget;
+      while (remaining > 0 && slice < slices.size()) {
+        Slice current = slices.get(slice);
+        int end = Math.min(current.blocks.length, index + remaining);
+        remaining -= end - index;
+        for (; index < end; index++) {
+          setBlock(current.blocks[index]);
+        }
+        if (index >= current.blocks.length) {
+          if (current.distance == 0) {
+            origin.complete(null);
+          }
+          slice++;
+          index = 0;
+        }
+      }
+      if (slice >= slices.size()) {
+        task.cancel();
+        applyArchetypes();
+        origin.complete(null);
+        completion.complete(null);
+      }
+    } catch (RuntimeException e) {
+      task.cancel();
+      PLUGIN.getLogger().error("Failed to paste schematic.", e);
+      origin.completeExceptionally(e);
+      completion.completeExceptionally(e);
+    }
+    SkyClaimsTimings.GENERATE_ISLAND.stopTimingIfSync();
+  }
+
+  private void setBlock(int block) {
+    Vector3i pos = schematic.getPosition(block);
+    int x = location.getBlockX() + pos.getX();
+    int y = location.getBlockY() + pos.getY();
+    int z = location.getBlockZ() + pos.getZ();
+    BlockState state = schematic.getBlock(block);
+    if (state.getType() == BlockTypes.AIR && location.getExtent().getBlockType(x, y, z) == BlockTypes.AIR) {
+      return;
+    }
+    location.getExtent().setBlock(x, y, z, state, BlockChangeFlags.NONE);
+  }
+
+  private void applyArchetypes() {
+    schematic.getTileEntities().forEach((pos, archetype) -> archetype.apply(location.add(pos)));
+    schematic.getEntities().forEach((pos, archetype) -> archetype.apply(location.add(pos)));
+  }
+
+  /**
+   * Groups the blocks of the schematic by the chunk column they are pasted into, ordered by distance from the paste
+   * location.
+   */
+  private static List<Slice> getSlices(CompiledSchematic schematic, Location<World> location) {
+    int originChunkX = location.getBlockX() >> 4;
+    int originChunkZ = location.getBlockZ() >> 4;
+    long[] columns = new long[schematic.getBlockCount()];
+    Map<Long, Integer> counts = Maps.newHashMap();
+    for (int i = 0; i < columns.length; i++) {
+      Vector3i pos = schematic.getPosition(i);
+      long cx = (location.getBlockX() + pos.getX()) >> 4;
+      long cz = (location.getBlockZ() + pos.getZ()) >> 4;
+      columns[i] = cx << 32 | (cz & 0xFFFFFFFFL);
+      counts.merge(columns[i], 1, Integer::sum);
+    }
+
+    Map<Long, Slice> byColumn = Maps.newHashMap();
+    counts.forEach((column, count) -> {
+      int cx = (int) (column >> 32);
+      int cz = (int) (long) column;
+      byColumn.put(column, new Slice(count, Math.max(Math.abs(cx - originChunkX), Math.abs(cz - originChunkZ))));
+    });
+    for (int i = 0; i < columns.length; i++) {
+      Slice slice = byColumn.get(columns[i]);
+      slice.blocks[slice.filled++] = i;
+    }
+
+    List<Slice> slices = Lists.newArrayList(byColumn.values());
+    slices.sort(Comparator.comparingInt(s -> s.distance));
+    return slices;
+  }
+
+  /**
+   * The indexes of the schematic's blocks within one chunk column.
+   */
+  private static final class Slice {
+
+    private final int[] blocks;
+    private final int distance;
+    private int filled = 0;
+
+    private Slice(int size, int distance) {
+      this.blocks = new int[size];
+      this.distance = distance;
+    }
+  }
+}
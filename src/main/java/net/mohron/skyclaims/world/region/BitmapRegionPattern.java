@@ -0,0 +1,68 @@
+/*
+ * SkyClaims - A Skyblock plugin made for Sponge
+ * Copyright (C) 2017 Mohron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SkyClaims is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SkyClaims.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.mohron.skyclaims.world.region;
+
+import java.util.ArrayList;
+import net.mohron.skyclaims.SkyClaims;
+import net.mohron.skyclaims.exception.InvalidRegionException;
+import net.mohron.skyclaims.util.ClaimUtil;
+import net.mohron.skyclaims.world.IslandManager;
+import org.spongepowered.api.text.Text;
+
+/**
+ * A region pattern that finds free regions using the region occupancy bitmap.
+ */
+public abstract class BitmapRegionPattern implements IRegionPattern {
+
+  protected static final SkyClaims PLUGIN = SkyClaims.getInstance();
+
+  @Override
+  public synchronized Region nextRegion() throws InvalidRegionException {
+    int spawnRegions = PLUGIN.getConfig().getWorldConfig().getSpawnRegions();
+    if (IslandManager.ISLANDS.isEmpty()) {
+      ArrayList<Region> spawn = new ArrayList<>(spawnRegions);
+      for (int i = 0; i < spawnRegions; i++) {
+        spawn.add(Region.fromSpiralOrdinal(i));
+      }
+      ClaimUtil.createSpawnClaim(spawn);
+    }
+
+    Region region = nextRegion(IslandManager.getOccupancy(), spawnRegions);
+    PLUGIN.getLogger().debug("Found unoccupied region ({}, {})", region.getX(), region.getZ());
+    return region;
+  }
+
+  /**
+   * Finds the next free region without consulting any loaded islands.
+   *
+   * @param occupancy the regions that are already occupied
+   * @param spawnRegions the number of regions at the start of the spiral reserved for spawn
+   * @return An unoccupied region
+   * @throws InvalidRegionException if no region is available
+   */
+  public abstract Region nextRegion(RegionOccupancy occupancy, int spawnRegions) throws InvalidRegionException;
+
+  static boolean isSpawn(Region region, int spawnRegions) {
+    return region.getSpiralOrdinal() < spawnRegions;
+  }
+
+  static InvalidRegionException noRegion() {
+    return new InvalidRegionException(Text.of("Failed to find a valid region!"));
+  }
+}
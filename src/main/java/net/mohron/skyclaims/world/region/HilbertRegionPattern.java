@@ -0,0 +1,112 @@
+/*
+ * SkyClaims - A Skyblock plugin made for Sponge
+ * Copyright (C) 2017 Mohron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SkyClaims is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SkyClaims.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.mohron.skyclaims.world.region;
+
+import net.mohron.skyclaims.exception.InvalidRegionException;
+
+/**
+ * Allocates regions along a Hilbert curve covering the positive x/z quadrant.
+ *
+ * <p>Consecutive positions on the curve are always adjacent regions, and any run of recently created islands stays
+ * within a compact square of region files.</p>
+ */
+public class HilbertRegionPattern extends BitmapRegionPattern {
+
+  // The curve covers a square of 2^14 x 2^14 regions, well inside the range of the occupancy bitmap
+  private static final int SIDE = 1 << 14;
+  private static final long SIZE = (long) SIDE * SIDE;
+
+  // The lowest curve position that may be unoccupied
+  private long cursor = 0;
+
+  @Override
+  public synchronized Region nextRegion(RegionOccupancy occupancy, int spawnRegions) throws InvalidRegionException {
+    for (long d = cursor; d < SIZE; d++) {
+      Region region = getRegion(d);
+      if (!isSpawn(region, spawnRegions) && !occupancy.isOccupied(region)) {
+        cursor = d;
+        return region;
+      }
+    }
+    throw noRegion();
+  }
+
+  @Override
+  public synchronized void release(Region region) {
+    if (region.getX() >= 0 && region.getX() < SIDE && region.getZ() >= 0 && region.getZ() < SIDE) {
+      cursor = Math.min(cursor, getIndex(region));
+    }
+  }
+
+  /**
+   * Gets the region at a position along the curve.
+   *
+   * @param index the position along the curve
+   * @return The region at that position
+   */
+  static Region getRegion(long index) {
+    int x = 0;
+    int z = 0;
+    long t = index;
+    for (int s = 1; s < SIDE; s *= 2) {
+      int rx = (int) (1 & (t / 2));
+      int rz = (int) (1 & (t ^ rx));
+      if (rz == 0) {
+        if (rx == 1) {
+          x = s - 1 - x;
+          z = s - 1 - z;
+        }
+        int a = x;
+        x = z;
+        z = a;
+      }
+      x += s * rx;
+      z += s * rz;
+      t /= 4;
+    }
+    return new Region(x, z);
+  }
+
+  /**
+   * Gets the position of a region along the curve.
+   *
+   * @param region a region within the curve's square
+   * @return The position along the curve
+   */
+  static long getIndex(Region region) {
+    int x = region.getX();
+    int z = region.getZ();
+    long index = 0;
+    for (int s = SIDE / 2; s > 0; s /= 2) {
+      int rx = (x & s) > 0 ? 1 : 0;
+      int rz = (z & s) > 0 ? 1 : 0;
+      index += (long) s * s * ((3 * rx) ^ rz);
+      if (rz == 0) {
+        if (rx == 1) {
+          x = SIDE - 1 - x;
+          z = SIDE - 1 - z;
+        }
+        int a = x;
+        x = z;
+        z = a;
+      }
+    }
+    return index;
+  }
+}
@@ -18,12 +18,17 @@
 
 package net.mohron.skyclaims.world.region;
 
-import java.util.ArrayList;
 import net.mohron.skyclaims.exception.InvalidRegionException;
 
 public interface IRegionPattern {
 
-  ArrayList<Region> generateRegionPattern();
+  Region nextRegion() throws InvalidRegionException;
 
-  public Region nextRegion() throws InvalidRegionException;
+  /**
+   * Called when an island is removed, allowing the pattern to hand out its region again.
+   *
+   * @param region the region that is no longer occupied
+   */
+  default void release(Region region) {
+  }
 }
@@ -0,0 +1,51 @@
+/*
+ * SkyClaims - A Skyblock plugin made for Sponge
+ * Copyright (C) 2017 Mohron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SkyClaims is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SkyClaims.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.mohron.skyclaims.world.region;
+
+import net.mohron.skyclaims.exception.InvalidRegionException;
+
+/**
+ * A spiral region pattern that remembers its position between allocations.
+ *
+ * <p>Instead of regenerating the spiral for every island, free regions are found by scanning the region occupancy
+ * bitmap from a cursor that only moves back when a region is released.</p>
+ */
+public class IncrementalSpiralRegionPattern extends BitmapRegionPattern {
+
+  // The lowest spiral position that may be unoccupied
+  private int cursor = 0;
+
+  @Override
+  public synchronized Region nextRegion(RegionOccupancy occupancy, int spawnRegions) throws InvalidRegionException {
+    int ordinal = occupancy.nextFree(Math.max(cursor, spawnRegions));
+    if (ordinal < 0) {
+      throw noRegion();
+    }
+    cursor = ordinal;
+    return Region.fromSpiralOrdinal(ordinal);
+  }
+
+  @Override
+  public synchronized void release(Region region) {
+    long ordinal = region.getSpiralOrdinal();
+    if (ordinal < cursor) {
+      cursor = (int) ordinal;
+    }
+  }
+}
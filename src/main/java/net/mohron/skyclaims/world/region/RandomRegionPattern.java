@@ -0,0 +1,46 @@
+/*
+ * SkyClaims - A Skyblock plugin made for Sponge
+ * Copyright (C) 2017 Mohron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SkyClaims is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SkyClaims.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.mohron.skyclaims.world.region;
+
+import java.util.Random;
+import net.mohron.skyclaims.exception.InvalidRegionException;
+
+/**
+ * Allocates regions at seeded random positions along the spiral, keeping about half of the regions near spawn free.
+ */
+public class RandomRegionPattern extends BitmapRegionPattern {
+
+  private static final int MIN_SPREAD = 64;
+
+  private final Random random;
+
+  public RandomRegionPattern(long seed) {
+    this.random = new Random(seed);
+  }
+
+  @Override
+  public synchronized Region nextRegion(RegionOccupancy occupancy, int spawnRegions) throws InvalidRegionException {
+    int spread = Math.max(MIN_SPREAD, occupancy.count() * 2);
+    int ordinal = occupancy.nextFree(spawnRegions + random.nextInt(spread));
+    if (ordinal < 0) {
+      throw noRegion();
+    }
+    return Region.fromSpiralOrdinal(ordinal);
+  }
+}
@@ -21,7 +21,6 @@ package net.mohron.skyclaims.world.region;
 import lombok.EqualsAndHashCode;
 import net.mohron.skyclaims.SkyClaims;
 import net.mohron.skyclaims.world.Coordinate;
-import net.mohron.skyclaims.world.Island;
 import net.mohron.skyclaims.world.IslandManager;
 import org.spongepowered.api.world.Location;
 import org.spongepowered.api.world.World;
@@ -38,23 +37,24 @@ public class Region {
   }
 
   public static boolean isOccupied(Region region) {
-    if (IslandManager.ISLANDS.isEmpty()) {
-      return false;
-    }
-
-    for (Island island : IslandManager.ISLANDS.values()) {
-      if (region.equals(island.getRegion())) {
-        return true;
-      }
-    }
-
-    return false;
+    return IslandManager.isOccupied(region);
   }
 
   public static Region get(Location<World> location) {
     return new Region(location.getBlockX() >> 4 >> 5, location.getBlockZ() >> 4 >> 5);
   }
 
+  /**
+   * Packs a region's x and z coordinates into a single long, suitable for use as an index key.
+   */
+  public static long getKey(int x, int z) {
+    return ((long) x << 32) | (z & 0xFFFFFFFFL);
+  }
+
+  public static long getKey(Location<World> location) {
+    return getKey(location.getBlockX() >> 4 >> 5, location.getBlockZ() >> 4 >> 5);
+  }
+
   public int getX() {
     return x;
   }
@@ -63,6 +63,66 @@ public class Region {
     return z;
   }
 
+  public long getKey() {
+    return getKey(x, z);
+  }
+
+  /**
+   * Gets this region's position along the spiral used to allocate island regions, starting at 0 for region (0, 0).
+   *
+   * @return The ordinal of this region in the spiral
+   */
+  public long getSpiralOrdinal() {
+    long k = Math.max(Math.abs(x), Math.abs(z));
+    if (k == 0) {
+      return 0;
+    }
+    // Each ring k starts at (k, 1 - k), right after the (2k - 1)^2 regions of the inner rings
+    long base = (2 * k - 1) * (2 * k - 1);
+    if (x == k && z > -k) {
+      return base + z + k - 1;
+    } else if (z == k) {
+      return base + 2 * k + (k - 1 - x);
+    } else if (x == -k) {
+      return base + 4 * k + (k - 1 - z);
+    } else {
+      return base + 6 * k + x + k - 1;
+    }
+  }
+
+  /**
+   * Gets the region at a position along the spiral used to allocate island regions.
+   *
+   * @param ordinal the position in the spiral, starting at 0 for region (0, 0)
+   * @return The region at that position
+   */
+  public static Region fromSpiralOrdinal(long ordinal) {
+    if (ordinal == 0) {
+      return new Region(0, 0);
+    }
+    int k = (int) ((Math.sqrt(ordinal) + 1) / 2);
+    // Correct for floating point error at ring boundaries
+    while ((2L * k + 1) * (2L * k + 1) <= ordinal) {
+      k++;
+    }
+    while ((2L * k - 1) * (2L * k - 1) > ordinal) {
+      k--;
+    }
+    long t = ordinal - (2L * k - 1) * (2L * k - 1);
+    int side = (int) (t / (2 * k));
+    int offset = (int) (t % (2 * k));
+    switch (side) {
+      case 0:
+        return new Region(k, 1 - k + offset);
+      case 1:
+        return new Region(k - 1 - offset, k);
+      case 2:
+        return new Region(-k, k - 1 - offset);
+      default:
+        return new Region(1 - k + offset, -k);
+    }
+  }
+
   public Coordinate getLesserBoundary() {
     return new Coordinate(x << 5 << 4, z << 5 << 4);
   }
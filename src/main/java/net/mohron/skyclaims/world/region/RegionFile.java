@@ -0,0 +1,220 @@
+/*
+ * SkyClaims - A Skyblock plugin made for Sponge
+ * Copyright (C) 2017 Mohron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SkyClaims is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SkyClaims.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.mohron.skyclaims.world.region;
+
+import com.flowpowered.math.vector.Vector3i;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import org.spongepowered.api.data.DataQuery;
+import org.spongepowered.api.data.DataView;
+import org.spongepowered.api.data.persistence.DataFormats;
+import org.spongepowered.api.world.World;
+
+/**
+ * Access to the Anvil region file backing a {@link Region}. A region is exactly 32x32 chunks, so each one is stored in
+ * a single r.x.z.mca file.
+ */
+public final class RegionFile {
+
+  public static final int CHUNKS = 32 * 32;
+  // Each chunk has a 4 byte entry in the location table at the start of the file
+  private static final int HEADER_SIZE = CHUNKS * 4;
+  private static final int SECTOR_SIZE = 4096;
+  /**
+   * A section mask with every section of a chunk present.
+   */
+  public static final int ALL_SECTIONS = 0xFFFF;
+  private static final DataQuery SECTIONS = DataQuery.of("Level", "Sections");
+  private static final DataQuery SECTION_Y = DataQuery.of("Y");
+
+  private RegionFile() {
+  }
+
+  /**
+   * Gets the index of a chunk within its region file.
+   *
+   * @param chunkPosition the chunk's position
+   * @return The index of the chunk's entry in the region file's location table
+   */
+  public static int getIndex(Vector3i chunkPosition) {
+    return (chunkPosition.getX() & 31) + (chunkPosition.getZ() & 31) * 32;
+  }
+
+  /**
+   * Reads the region file's location table to find which chunks have been saved to it.
+   *
+   * @param world the world containing the region
+   * @param region the region to read
+   * @return The indexes of every chunk present in the region file
+   * @throws IOException if the file could not be read
+   */
+  public static BitSet getSavedChunks(World world, Region region) throws IOException {
+    BitSet chunks = new BitSet(CHUNKS);
+    Path path = getPath(world, region);
+    if (!Files.exists(path)) {
+      return chunks;
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() < HEADER_SIZE) {
+        return chunks;
+      }
+      // A plain read rather than a mapping, as a mapped file cannot be truncated on Windows until the mapping is collected
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      while (header.hasRemaining()) {
+        if (channel.read(header, header.position()) < 0) {
+          return chunks;
+        }
+      }
+      header.flip();
+      IntBuffer locations = header.asIntBuffer();
+      for (int i = 0; i < CHUNKS; i++) {
+        // A chunk's entry is its sector offset and sector count, or 0 if it has never been saved
+        if (locations.get(i) != 0) {
+          chunks.set(i);
+        }
+      }
+    }
+    return chunks;
+  }
+
+  /**
+   * Reads which 16 block tall sections of each chunk have been saved to the region file. Sections that are entirely air
+   * are not saved, so a section missing from a saved chunk is known to be empty without loading the chunk.
+   *
+   * @param world the world containing the region
+   * @param region the region to read
+   * @return A mask of the saved sections of each chunk, indexed by {@link #getIndex(Vector3i)}. A chunk that has not
+   *     been saved, or could not be read, has every section set.
+   * @throws IOException if the file could not be read
+   */
+  public static int[] getSavedSections(World world, Region region) throws IOException {
+    int[] sections = new int[CHUNKS];
+    Arrays.fill(sections, ALL_SECTIONS);
+    Path path = getPath(world, region);
+    if (!Files.exists(path)) {
+      return sections;
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer header = read(channel, 0, HEADER_SIZE);
+      if (header == null) {
+        return sections;
+      }
+      IntBuffer locations = header.asIntBuffer();
+      for (int i = 0; i < CHUNKS; i++) {
+        int location = locations.get(i);
+        if (location != 0) {
+          sections[i] = readSections(channel, (long) (location >>> 8) * SECTOR_SIZE, (location & 0xFF) * SECTOR_SIZE);
+        }
+      }
+    }
+    return sections;
+  }
+
+  /**
+   * Reads the section mask of a single saved chunk, stored as its length, compression type and compressed NBT.
+   */
+  private static int readSections(FileChannel channel, long offset, int size) {
+    try {
+      ByteBuffer chunk = read(channel, offset, size);
+      if (chunk == null) {
+        return ALL_SECTIONS;
+      }
+      int length = chunk.getInt();
+      if (length <= 1 || length > chunk.remaining()) {
+        return ALL_SECTIONS;
+      }
+      byte compression = chunk.get();
+      InputStream data = new ByteArrayInputStream(chunk.array(), chunk.position(), length - 1);
+      if (compression == 1) {
+        data = new GZIPInputStream(data);
+      } else if (compression == 2) {
+        data = new InflaterInputStream(data);
+      } else {
+        return ALL_SECTIONS;
+      }
+      int mask = 0;
+      try (InputStream in = data) {
+        for (DataView section : DataFormats.NBT.readFrom(in).getViewList(SECTIONS).orElse(Collections.emptyList())) {
+          int y = section.getInt(SECTION_Y).orElse(-1);
+          mask |= y >= 0 && y < 16 ? 1 << y : ALL_SECTIONS;
+        }
+      }
+      return mask;
+    } catch (IOException | RuntimeException e) {
+      return ALL_SECTIONS;
+    }
+  }
+
+  /**
+   * @return The bytes read, or null if the file ends before them
+   */
+  private static ByteBuffer read(FileChannel channel, long offset, int size) throws IOException {
+    if (size <= 0 || channel.size() < offset + size) {
+      return null;
+    }
+    // A plain read rather than a mapping, as a mapped file cannot be truncated on Windows until the mapping is collected
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, offset + buffer.position()) < 0) {
+        return null;
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  public static Path getPath(World world, Region region) {
+    return world.getDirectory().resolve("region").resolve(String.format("r.%d.%d.mca", region.getX(), region.getZ()));
+  }
+
+  /**
+   * Empties the region file, causing every chunk in the region to be generated again when next loaded.
+   *
+   * <p>The file is truncated rather than deleted, as the server may still hold it open in its region file cache. Any
+   * cached chunk offsets then point past the end of the file and are read as missing chunks.</p>
+   *
+   * @param world the world containing the region
+   * @param region the region to clear
+   * @return false if the region had no file to clear
+   * @throws IOException if the file could not be truncated
+   */
+  public static boolean clear(World world, Region region) throws IOException {
+    Path path = getPath(world, region);
+    if (!Files.exists(path)) {
+      return false;
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+      channel.truncate(0);
+      channel.force(true);
+    }
+    return true;
+  }
+}
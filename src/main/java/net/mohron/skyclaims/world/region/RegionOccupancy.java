@@ -0,0 +1,113 @@
+/*
+ * SkyClaims - A Skyblock plugin made for Sponge
+ * Copyright (C) 2017 Mohron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SkyClaims is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SkyClaims.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.mohron.skyclaims.world.region;
+
+import java.util.BitSet;
+import java.util.Collection;
+
+/**
+ * A bitmap of occupied regions, indexed by each region's position along the allocation spiral.
+ */
+public class RegionOccupancy {
+
+  private final BitSet occupied;
+
+  public RegionOccupancy() {
+    this(new BitSet());
+  }
+
+  private RegionOccupancy(BitSet occupied) {
+    this.occupied = occupied;
+  }
+
+  public static RegionOccupancy of(Collection<Region> regions) {
+    RegionOccupancy occupancy = new RegionOccupancy();
+    regions.forEach(occupancy::occupy);
+    return occupancy;
+  }
+
+  public static RegionOccupancy fromByteArray(byte[] bytes) {
+    return new RegionOccupancy(BitSet.valueOf(bytes));
+  }
+
+  public RegionOccupancy copy() {
+    return new RegionOccupancy((BitSet) occupied.clone());
+  }
+
+  public byte[] toByteArray() {
+    return occupied.toByteArray();
+  }
+
+  public boolean isOccupied(Region region) {
+    int index = index(region);
+    return index >= 0 && occupied.get(index);
+  }
+
+  /**
+   * Marks a region as occupied.
+   *
+   * @param region the region to mark
+   * @return true if the region was not already marked
+   */
+  public boolean occupy(Region region) {
+    int index = index(region);
+    if (index < 0 || occupied.get(index)) {
+      return false;
+    }
+    occupied.set(index);
+    return true;
+  }
+
+  /**
+   * Marks a region as free.
+   *
+   * @param region the region to free
+   * @return true if the region was marked as occupied
+   */
+  public boolean release(Region region) {
+    int index = index(region);
+    if (index < 0 || !occupied.get(index)) {
+      return false;
+    }
+    occupied.clear(index);
+    return true;
+  }
+
+  /**
+   * Finds the first unoccupied spiral position at or after the given ordinal.
+   *
+   * @param fromOrdinal the spiral position to begin searching from
+   * @return The ordinal of the first free position
+   */
+  public int nextFree(int fromOrdinal) {
+    return occupied.nextClearBit(fromOrdinal);
+  }
+
+  /**
+   * @return The number of occupied regions
+   */
+  public int count() {
+    return occupied.cardinality();
+  }
+
+  private static int index(Region region) {
+    long ordinal = region.getSpiralOrdinal();
+    return ordinal > Integer.MAX_VALUE ? -1 : (int) ordinal;
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * SkyClaims - A Skyblock plugin made for Sponge
+ * Copyright (C) 2017 Mohron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SkyClaims is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SkyClaims.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.mohron.skyclaims.world;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import net.mohron.skyclaims.world.OperationJournal.Operation;
+import net.mohron.skyclaims.world.region.Region;
+import org.junit.Test;
+
+public class OperationJournalTest {
+
+  private static final String CREATE = String.join("\t",
+      "0b6f5a52-8f3c-4c8e-9a57-0d9f1f3c2a11",
+      "CREATE",
+      "CLAIMED",
+      "5d2b1e0c-3b7e-4f0a-8a2e-6c1d9b7e4f22",
+      "-12",
+      "7",
+      "skyfactory",
+      "9e8d7c6b-5a49-4382-9170-6f5e4d3c2b33"
+  );
+  private static final String CLEAR = String.join("\t",
+      "1c7a6b63-9f4d-4d9f-8b68-1e0a2a4d3b44",
+      "CLEAR",
+      "STARTED",
+      "-",
+      "0",
+      "-3",
+      "-",
+      "-"
+  );
+
+  @Test
+  public void entryRoundTrip() {
+    Operation operation = Operation.parse(CREATE);
+
+    assertNotNull(operation);
+    assertEquals(OperationJournal.Type.CREATE, operation.getType());
+    assertEquals(OperationJournal.Stage.CLAIMED, operation.getStage());
+    assertEquals(new Region(-12, 7), operation.getRegion());
+    assertEquals(CREATE, operation.serialize());
+  }
+
+  @Test
+  public void entryWithoutIslandRoundTrip() {
+    Operation operation = Operation.parse(CLEAR);
+
+    assertNotNull(operation);
+    assertEquals(OperationJournal.Type.CLEAR, operation.getType());
+    assertEquals(OperationJournal.Stage.STARTED, operation.getStage());
+    assertEquals(new Region(0, -3), operation.getRegion());
+    assertEquals(CLEAR, operation.serialize());
+  }
+
+  @Test
+  public void truncatedEntriesAreRejected() {
+    for (String line : new String[]{CREATE, CLEAR}) {
+      for (int length = 0; length < line.length(); length++) {
+        assertNull("Length " + length, Operation.parse(line.substring(0, length)));
+      }
+    }
+  }
+
+  @Test
+  public void malformedEntriesAreRejected() {
+    assertNull(Operation.parse(CREATE.replace("CREATE", "MERGE")));
+    assertNull(Operation.parse(CREATE.replace("CLAIMED", "DONE")));
+    assertNull(Operation.parse(CREATE.replace("\t7\t", "\tseven\t")));
+    assertNull(Operation.parse(CREATE + "\textra"));
+  }
+}
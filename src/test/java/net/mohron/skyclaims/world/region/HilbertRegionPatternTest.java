@@ -0,0 +1,58 @@
+/*
+ * SkyClaims - A Skyblock plugin made for Sponge
+ * Copyright (C) 2017 Mohron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SkyClaims is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SkyClaims.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.mohron.skyclaims.world.region;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.Sets;
+import java.util.Set;
+import org.junit.Test;
+
+public class HilbertRegionPatternTest {
+
+  @Test
+  public void indexRoundTrip() {
+    for (long index = 0; index < 1 << 16; index++) {
+      assertEquals(index, HilbertRegionPattern.getIndex(HilbertRegionPattern.getRegion(index)));
+    }
+  }
+
+  @Test
+  public void regionsAreUnique() {
+    int side = 1 << 7;
+    Set<Region> regions = Sets.newHashSet();
+    for (long index = 0; index < (long) side * side; index++) {
+      Region region = HilbertRegionPattern.getRegion(index);
+      // The first 4^n positions fill the square of side 2^n at the origin
+      assertTrue(region.getX() >= 0 && region.getX() < side && region.getZ() >= 0 && region.getZ() < side);
+      assertTrue(regions.add(region));
+    }
+  }
+
+  @Test
+  public void consecutiveRegionsAreAdjacent() {
+    Region previous = HilbertRegionPattern.getRegion(0);
+    for (long index = 1; index < 1 << 16; index++) {
+      Region region = HilbertRegionPattern.getRegion(index);
+      assertEquals("Index " + index, 1, Math.abs(region.getX() - previous.getX()) + Math.abs(region.getZ() - previous.getZ()));
+      previous = region;
+    }
+  }
+}
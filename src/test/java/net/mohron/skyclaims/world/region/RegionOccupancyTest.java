@@ -0,0 +1,92 @@
+/*
+ * SkyClaims - A Skyblock plugin made for Sponge
+ * Copyright (C) 2017 Mohron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SkyClaims is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SkyClaims.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.mohron.skyclaims.world.region;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import org.junit.Test;
+
+public class RegionOccupancyTest {
+
+  @Test
+  public void occupyMarksRegionOnce() {
+    RegionOccupancy occupancy = new RegionOccupancy();
+    Region region = new Region(3, -2);
+
+    assertFalse(occupancy.isOccupied(region));
+    assertTrue(occupancy.occupy(region));
+    assertTrue(occupancy.isOccupied(region));
+    assertFalse(occupancy.occupy(region));
+    assertEquals(1, occupancy.count());
+  }
+
+  @Test
+  public void releaseFreesOnlyOccupiedRegions() {
+    RegionOccupancy occupancy = RegionOccupancy.of(Arrays.asList(new Region(0, 0), new Region(1, 0)));
+
+    assertTrue(occupancy.release(new Region(1, 0)));
+    assertFalse(occupancy.isOccupied(new Region(1, 0)));
+    assertTrue(occupancy.isOccupied(new Region(0, 0)));
+    assertFalse(occupancy.release(new Region(1, 0)));
+    assertFalse(occupancy.release(new Region(5, 5)));
+    assertEquals(1, occupancy.count());
+  }
+
+  @Test
+  public void nextFreeSkipsOccupiedOrdinals() {
+    RegionOccupancy occupancy = new RegionOccupancy();
+    for (int ordinal = 0; ordinal < 5; ordinal++) {
+      occupancy.occupy(Region.fromSpiralOrdinal(ordinal));
+    }
+
+    assertEquals(5, occupancy.nextFree(0));
+    occupancy.release(Region.fromSpiralOrdinal(2));
+    assertEquals(2, occupancy.nextFree(0));
+    assertEquals(5, occupancy.nextFree(3));
+  }
+
+  @Test
+  public void copyIsIndependent() {
+    RegionOccupancy occupancy = RegionOccupancy.of(Arrays.asList(new Region(0, 0), new Region(0, 1)));
+    RegionOccupancy copy = occupancy.copy();
+
+    copy.release(new Region(0, 1));
+    copy.occupy(new Region(2, 2));
+
+    assertTrue(occupancy.isOccupied(new Region(0, 1)));
+    assertFalse(occupancy.isOccupied(new Region(2, 2)));
+    assertEquals(2, occupancy.count());
+  }
+
+  @Test
+  public void byteArrayRoundTrip() {
+    RegionOccupancy occupancy = RegionOccupancy.of(Arrays.asList(new Region(0, 0), new Region(-4, 7), new Region(100, -100)));
+    RegionOccupancy restored = RegionOccupancy.fromByteArray(occupancy.toByteArray());
+
+    assertArrayEquals(occupancy.toByteArray(), restored.toByteArray());
+    assertEquals(3, restored.count());
+    assertTrue(restored.isOccupied(new Region(-4, 7)));
+    assertTrue(restored.isOccupied(new Region(100, -100)));
+    assertFalse(restored.isOccupied(new Region(1, 1)));
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * SkyClaims - A Skyblock plugin made for Sponge
+ * Copyright (C) 2017 Mohron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SkyClaims is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SkyClaims.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.mohron.skyclaims.world.region;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.Sets;
+import java.util.Set;
+import org.junit.Test;
+
+public class RegionTest {
+
+  @Test
+  public void spiralStartsAtOrigin() {
+    assertEquals(new Region(0, 0), Region.fromSpiralOrdinal(0));
+    assertEquals(0, new Region(0, 0).getSpiralOrdinal());
+  }
+
+  @Test
+  public void spiralOrdinalRoundTrip() {
+    for (long ordinal = 0; ordinal < 100_000; ordinal++) {
+      Region region = Region.fromSpiralOrdinal(ordinal);
+      assertEquals(ordinal, region.getSpiralOrdinal());
+    }
+  }
+
+  @Test
+  public void spiralOrdinalRoundTripAtRingBoundaries() {
+    for (long k = 1; k < 40_000; k += 997) {
+      long first = (2 * k - 1) * (2 * k - 1);
+      long last = (2 * k + 1) * (2 * k + 1) - 1;
+      assertEquals(first, Region.fromSpiralOrdinal(first).getSpiralOrdinal());
+      assertEquals(last, Region.fromSpiralOrdinal(last).getSpiralOrdinal());
+    }
+  }
+
+  @Test
+  public void spiralCoversEachRingOnce() {
+    int k = 5;
+    Set<Region> regions = Sets.newHashSet();
+    for (long ordinal = 0; ordinal < (2L * k + 1) * (2L * k + 1); ordinal++) {
+      Region region = Region.fromSpiralOrdinal(ordinal);
+      assertTrue(Math.abs(region.getX()) <= k && Math.abs(region.getZ()) <= k);
+      assertTrue(regions.add(region));
+    }
+    assertEquals((2 * k + 1) * (2 * k + 1), regions.size());
+  }
+
+  @Test
+  public void spiralNeighboursAreAdjacent() {
+    for (long ordinal = 1; ordinal < 10_000; ordinal++) {
+      Region previous = Region.fromSpiralOrdinal(ordinal - 1);
+      Region region = Region.fromSpiralOrdinal(ordinal);
+      assertEquals("Ordinal " + ordinal, 1, Math.abs(region.getX() - previous.getX()) + Math.abs(region.getZ() - previous.getZ()));
+    }
+  }
+}